@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A complete load from extracted files: every file parsed, then SRG data linked to CSV data. The linking cost is what this
+ * takes beyond the slowest chain of {@link ParserBenchmark} results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoaderBenchmark {
+    @Param({"" + MappingFixture.DEFAULT_CLASSES})
+    public int classes;
+
+    @Param({"false", "true"})
+    public boolean newFormat;
+
+    private MappingFixture fixture;
+
+    @Setup(Level.Trial)
+    public void createFixture() throws IOException {
+        fixture = MappingFixture.create(classes);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFixture() throws IOException {
+        fixture.delete();
+    }
+
+    @Benchmark
+    public McpMappingLoader load() throws Exception {
+        return fixture.load(newFormat);
+    }
+}
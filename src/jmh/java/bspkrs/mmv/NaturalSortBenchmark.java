@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import bspkrs.mmv.version.NaturalOrderComparator;
+import bspkrs.mmv.version.NaturalSortKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorts mapping version names, as on the version list, and SRG names, as in a table column, with each of the natural order
+ * comparators. The caching comparator and {@link NaturalSortKey#sort} include working out every key, while the precomputed
+ * keys show what is left of a sort once they exist.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NaturalSortBenchmark {
+    private static final String[] MC_VERSIONS = {"1.7.10", "1.8", "1.8.9", "1.9.4", "1.10.2", "1.11.2", "1.12", "1.12.2", "1.13.2",
+            "1.14.4", "1.15.1", "1.16.5"};
+
+    @Param({"10000"})
+    public int count;
+
+    @Param({"versions", "names"})
+    public String kind;
+
+    private List<String> strings;
+    private NaturalSortKey[] keys;
+
+    @Setup(Level.Trial)
+    public void createStrings() {
+        Random random = new Random(42);
+        strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (kind.equals("versions")) {
+                String mcVersion = MC_VERSIONS[random.nextInt(MC_VERSIONS.length)];
+                if (random.nextInt(8) == 0)
+                    strings.add(mcVersion + "_stable_" + random.nextInt(60));
+                else
+                    strings.add(mcVersion + "_snapshot_" + (2014 + random.nextInt(7)) + String.format("%02d%02d", 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            } else {
+                int id = random.nextInt(100000);
+                switch (random.nextInt(4)) {
+                    case 0:
+                        strings.add("func_" + id + "_" + (char) ('a' + random.nextInt(26)));
+                        break;
+                    case 1:
+                        strings.add("field_" + id + "_" + (char) ('a' + random.nextInt(26)));
+                        break;
+                    case 2:
+                        strings.add("p_" + id + "_" + random.nextInt(6) + "_");
+                        break;
+                    default:
+                        strings.add("Class" + id + (id % 11 == 0 ? "Impl" : ""));
+                }
+            }
+        }
+
+        keys = new NaturalSortKey[count];
+        for (int i = 0; i < count; i++)
+            keys[i] = new NaturalSortKey(strings.get(i));
+    }
+
+    @Benchmark
+    public List<String> naturalOrderComparator() {
+        List<String> sorted = new ArrayList<>(strings);
+        Collections.sort(sorted, new NaturalOrderComparator());
+        return sorted;
+    }
+
+    @Benchmark
+    public List<String> splittedNaturalComparator() {
+        List<String> sorted = new ArrayList<>(strings);
+        Collections.sort(sorted, new SplittedNaturalComparator("_"));
+        return sorted;
+    }
+
+    @Benchmark
+    public List<String> cachingComparator() {
+        List<String> sorted = new ArrayList<>(strings);
+        Collections.sort(sorted, NaturalSortKey.cachingComparator());
+        return sorted;
+    }
+
+    @Benchmark
+    public List<String> sortWithKeys() {
+        List<String> sorted = new ArrayList<>(strings);
+        NaturalSortKey.sort(sorted);
+        return sorted;
+    }
+
+    @Benchmark
+    public NaturalSortKey[] precomputedKeys() {
+        NaturalSortKey[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses each mapping file on its own. SRG parsing also fills in the EXC data it is given, so it gets a freshly parsed
+ * ExcFile for every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParserBenchmark {
+    @Param({"" + MappingFixture.DEFAULT_CLASSES})
+    public int classes;
+
+    private MappingFixture fixture;
+    private StaticMethodsFile staticMethods;
+    private ExcFile excFile;
+    private String[] descriptors;
+
+    @Setup(Level.Trial)
+    public void createFixture() throws IOException {
+        fixture = MappingFixture.create(classes);
+        staticMethods = new StaticMethodsFile(fixture.file("static_methods.txt"));
+
+        SrgFile srgFile = new SrgFile(fixture.file("joined.srg"), new ExcFile(fixture.file("joined.exc")), staticMethods);
+        descriptors = new String[srgFile.srgMethodName2MethodData.size()];
+        int i = 0;
+        for (MethodSrgData methodData : srgFile.srgMethodName2MethodData.values())
+            descriptors[i++] = methodData.getSrgDescriptor();
+    }
+
+    @Setup(Level.Invocation)
+    public void parseExcFile() throws IOException {
+        excFile = new ExcFile(fixture.file("joined.exc"));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFixture() throws IOException {
+        fixture.delete();
+    }
+
+    @Benchmark
+    public SrgFile srgFile() throws IOException {
+        return new SrgFile(fixture.file("joined.srg"), excFile, staticMethods);
+    }
+
+    @Benchmark
+    public SrgFile tsrgFile() throws IOException {
+        return new TSrgFile(fixture.file("config/joined.tsrg"), excFile, staticMethods);
+    }
+
+    @Benchmark
+    public ExcFile excFile() throws IOException {
+        return new ExcFile(fixture.file("joined.exc"));
+    }
+
+    @Benchmark
+    public StaticMethodsFile staticMethodsFile() throws IOException {
+        return new StaticMethodsFile(fixture.file("static_methods.txt"));
+    }
+
+    @Benchmark
+    public CsvFile fieldsCsvFile() throws IOException {
+        return new CsvFile(fixture.file("fields.csv"));
+    }
+
+    @Benchmark
+    public CsvFile methodsCsvFile() throws IOException {
+        return new CsvFile(fixture.file("methods.csv"));
+    }
+
+    @Benchmark
+    public ParamCsvFile paramsCsvFile() throws IOException {
+        return new ParamCsvFile(fixture.file("params.csv"));
+    }
+
+    /**
+     * Splits the descriptor of every method, as the SRG parsers do for methods without EXC data.
+     */
+    @Benchmark
+    public void splitMethodDescriptors(Blackhole bh) {
+        for (String descriptor : descriptors)
+            bh.consume(ExcData.splitMethodDesc(descriptor));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.table.TableModel;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches for a selective name, a common name, a package, comment text and a query too short for the search index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+    /**
+     * Matches nothing and is not part of any query below, so the search after it cannot reuse earlier results.
+     */
+    private static final String RESET_QUERY = "###";
+
+    @Param({"" + MappingFixture.DEFAULT_CLASSES})
+    public int classes;
+
+    @Param({"func_1234", "Impl", "client/pkg3", "Sets the x", "ab"})
+    public String query;
+
+    private MappingFixture fixture;
+    private McpMappingLoader loader;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        fixture = MappingFixture.create(classes);
+        loader = fixture.load(false);
+        loader.getSearchResults(query, null); // builds the search index
+    }
+
+    @Setup(Level.Invocation)
+    public void forgetLastSearch() {
+        loader.getSearchResults(RESET_QUERY, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFixture() throws IOException {
+        fixture.delete();
+    }
+
+    @Benchmark
+    public TableModel search() {
+        return loader.getSearchResults(query, null);
+    }
+
+    /**
+     * A search that extends the previous one, as when typing in the filter box.
+     */
+    @Benchmark
+    public TableModel refineSearch() {
+        loader.getSearchResults(query.substring(0, query.length() - 1), null);
+        return loader.getSearchResults(query, null);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.swing.table.TableModel;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the table models the GUI shows and reads every cell, as a table does when it is first painted and sized.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TableModelBenchmark {
+    @Param({"" + MappingFixture.DEFAULT_CLASSES})
+    public int classes;
+
+    private MappingFixture fixture;
+    private McpMappingLoader loader;
+    private SrgFile srgFile;
+    private String[] classNames;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        fixture = MappingFixture.create(classes);
+        loader = fixture.load(false);
+        srgFile = new SrgFile(fixture.file("joined.srg"), new ExcFile(fixture.file("joined.exc")),
+                new StaticMethodsFile(fixture.file("static_methods.txt")));
+
+        TableModel classModel = loader.getClassModel();
+        classNames = new String[classModel.getRowCount()];
+        for (int i = 0; i < classNames.length; i++)
+            classNames[i] = classModel.getValueAt(i, 0) + "/" + classModel.getValueAt(i, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFixture() throws IOException {
+        fixture.delete();
+    }
+
+    @Benchmark
+    public void classModel(Blackhole bh) {
+        readAll(new McpMappingLoader.ClassModel(srgFile.srgClassName2ClassData.values()), bh);
+    }
+
+    /**
+     * The method and field tables of every class, as if each one were selected in turn.
+     */
+    @Benchmark
+    public void memberModels(Blackhole bh) {
+        for (String className : classNames) {
+            readAll(loader.getMethodModel(className), bh);
+            readAll(loader.getFieldModel(className), bh);
+        }
+    }
+
+    private static void readAll(TableModel model, Blackhole bh) {
+        for (int row = 0; row < model.getRowCount(); row++)
+            for (int column = 0; column < model.getColumnCount(); column++)
+                bh.consume(model.getValueAt(row, column));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the files cached under {@link McpMappingLoader#BASE_DIR} are used without asking the server first. A digest or
+ * version list younger than its time to live is used as it is; an older one is revalidated with a conditional request, and
+ * the cached copy is still used when the server cannot be reached. In offline mode nothing is requested at all, so anything
+ * that is not cached cannot be loaded.
+ */
+public final class CachePolicy {
+    /**
+     * Settings from the {@code mmv.offline}, {@code mmv.cache.digestTtlMinutes} and {@code mmv.cache.versionsTtlMinutes}
+     * system properties: online, a day for zip digests and an hour for the version list unless they say otherwise.
+     */
+    public static final CachePolicy DEFAULT = new CachePolicy(Boolean.getBoolean("mmv.offline"),
+            TimeUnit.MINUTES.toMillis(Long.getLong("mmv.cache.digestTtlMinutes", 24 * 60)),
+            TimeUnit.MINUTES.toMillis(Long.getLong("mmv.cache.versionsTtlMinutes", 60)));
+
+    private final boolean offline;
+    private final long digestTtl;
+    private final long versionsTtl;
+
+    /**
+     * @param digestTtl   how long in milliseconds the digest of a cached zip is trusted without checking it against the server
+     * @param versionsTtl how long in milliseconds the cached version list is used without checking it against the server
+     */
+    public CachePolicy(boolean offline, long digestTtl, long versionsTtl) {
+        this.offline = offline;
+        this.digestTtl = digestTtl;
+        this.versionsTtl = versionsTtl;
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    public long getDigestTtl() {
+        return digestTtl;
+    }
+
+    public long getVersionsTtl() {
+        return versionsTtl;
+    }
+
+    /**
+     * Returns a policy that revalidates every cached file, for when the user asks for a reload. Offline mode still applies.
+     */
+    public CachePolicy revalidating() {
+        return new CachePolicy(offline, 0, 0);
+    }
+
+    boolean isDigestFresh(File digestFile) {
+        return isFresh(digestFile, digestTtl);
+    }
+
+    boolean isVersionsFresh(File versionsFile) {
+        return isFresh(versionsFile, versionsTtl);
+    }
+
+    private static boolean isFresh(File file, long ttl) {
+        long age = System.currentTimeMillis() - file.lastModified();
+        return file.exists() && age >= 0 && age < ttl;
+    }
+}
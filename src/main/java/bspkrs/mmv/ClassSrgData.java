@@ -15,17 +15,33 @@
  */
 package bspkrs.mmv;
 
+import java.util.Comparator;
+
 public class ClassSrgData implements Comparable<ClassSrgData> {
-    public static SortType sortType = SortType.PKG;
+    /**
+     * Orders classes by fully qualified SRG name. This is the natural order.
+     */
+    public static final Comparator<ClassSrgData> PKG_ORDER = new Comparator<ClassSrgData>() {
+        @Override
+        public int compare(ClassSrgData a, ClassSrgData b) {
+            if (b != null)
+                return a.fullyQualifiedSrgName.compareTo(b.fullyQualifiedSrgName);
+            else
+                return 1;
+        }
+    };
+
     private final String obfName;
     private final String srgName;
     private final boolean isClientOnly;
-    private String srgPkgName;
+    private final String srgPkgName;
+    private final String fullyQualifiedSrgName;
 
     public ClassSrgData(String obfName, String srgName, String srgPkgName, boolean isClientOnly) {
         this.obfName = obfName;
         this.srgName = srgName;
         this.srgPkgName = srgPkgName;
+        this.fullyQualifiedSrgName = srgPkgName + "/" + srgName;
         this.isClientOnly = isClientOnly;
     }
 
@@ -41,42 +57,38 @@ public class ClassSrgData implements Comparable<ClassSrgData> {
         return this.srgPkgName;
     }
 
-    public ClassSrgData setSrgPkgName(String pkg) {
-        this.srgPkgName = pkg;
-        return this;
-    }
-
     public boolean isClientOnly() {
         return isClientOnly;
     }
 
     public String getFullyQualifiedSrgName() {
-        return srgPkgName + "/" + srgName;
+        return fullyQualifiedSrgName;
     }
 
     @Override
     public int compareTo(ClassSrgData o) {
-        if (sortType == SortType.PKG)
-            if (o != null)
-                return getFullyQualifiedSrgName().compareTo(o.getFullyQualifiedSrgName());
-            else
-                return 1;
-        else if (o != null)
-            if (obfName.length() != o.obfName.length())
-                return obfName.length() - o.obfName.length();
-            else
-                return obfName.compareTo(o.obfName);
-        else
-            return 1;
+        return PKG_ORDER.compare(this, o);
+    }
 
+    /**
+     * Classes are equal when their package and name are, which matches {@link #compareTo}.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof ClassSrgData))
+            return false;
+        ClassSrgData other = (ClassSrgData) o;
+        return srgName.equals(other.srgName) && srgPkgName.equals(other.srgPkgName);
     }
 
-    public boolean contains(String s) {
-        return srgName.contains(s) || obfName.contains(s) || this.srgPkgName.contains(s);
+    @Override
+    public int hashCode() {
+        return 31 * srgPkgName.hashCode() + srgName.hashCode();
     }
 
-    public enum SortType {
-        PKG,
-        OBF
+    public boolean contains(String s) {
+        return srgName.contains(s) || obfName.contains(s) || this.srgPkgName.contains(s);
     }
 }
@@ -39,8 +39,21 @@ public class CsvData implements Comparable<CsvData> {
         }
     }
 
+    CsvData(String srgName, String mcpName, int side, String comment, boolean needsQuoted) {
+        this.srgName = srgName;
+        this.mcpName = mcpName;
+        this.side = side;
+        this.comment = comment;
+        this.needsQuoted = needsQuoted;
+    }
+
     public String toCsv() {
-        return srgName + "," + mcpName + "," + side + "," + (needsQuoted ? "\"" + comment + "\"" : comment);
+        boolean quote = needsQuoted || comment.indexOf(',') != -1 || comment.indexOf('"') != -1 || comment.indexOf('\n') != -1 || comment.indexOf('\r') != -1;
+        return srgName + "," + mcpName + "," + side + "," + (quote ? "\"" + comment.replace("\"", "\"\"") + "\"" : comment);
+    }
+
+    boolean needsQuoted() {
+        return needsQuoted;
     }
 
     public String getSrgName() {
@@ -17,8 +17,11 @@
 package bspkrs.mmv;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.TreeMap;
 
 public class CsvFile {
@@ -28,40 +31,82 @@ public class CsvFile {
     private String headerLine;
 
     public CsvFile(File file) throws IOException {
+        this(file, new StringPool());
+    }
+
+    CsvFile(File file, StringPool pool) throws IOException {
+        this(file, file.toPath(), pool);
+    }
+
+    /**
+     * Reads the CSV from {@code source}, such as an entry of the mapping zip, while edits are still written to {@code file}.
+     */
+    CsvFile(File file, Path source, StringPool pool) throws IOException {
         this.file = file;
-        srgMemberName2CsvData = new TreeMap<>();
-        readFromFile();
+        srgMemberName2CsvData = new HashMap<>(expectedRows(source));
+        readFrom(source, pool);
+        isDirty = false;
+    }
+
+    /**
+     * Creates an empty instance for {@link MappingSnapshot} to populate without reading {@code file}.
+     */
+    CsvFile(File file, String headerLine) {
+        this.file = file;
+        this.headerLine = headerLine;
+        srgMemberName2CsvData = new HashMap<>();
         isDirty = false;
     }
 
     public void readFromFile() throws IOException {
-        try (Scanner in = new Scanner(new BufferedReader(new FileReader(file)))) {
-            in.useDelimiter(",");
-            headerLine = in.nextLine(); // Skip header row
-            while (in.hasNextLine()) {
-                String srgName = in.next();
-                String mcpName = in.next();
-                String side = in.next();
-                String comment = in.nextLine().substring(1);
-                srgMemberName2CsvData.put(srgName, new CsvData(srgName, mcpName, Integer.parseInt(side), comment));
+        readFrom(file.toPath(), new StringPool());
+    }
+
+    private void readFrom(Path source, StringPool pool) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(source))); CsvReader in = new CsvReader(reader)) {
+            headerLine = reader.readLine(); // Skip header row
+            while (in.next()) {
+                String srgName = in.get(0, pool);
+                String mcpName = in.get(1, pool);
+                int side = in.getInt(2);
+                String comment = in.getRest(3, pool);
+                srgMemberName2CsvData.put(srgName, new CsvData(srgName, mcpName, side, comment, in.isQuoted(3) || comment.indexOf(',') != -1));
             }
         }
     }
 
+    /**
+     * Estimates the row count of a CSV file from its size, so the map does not have to grow while it is read.
+     */
+    static int expectedRows(Path source) throws IOException {
+        return (int) Math.min(Files.size(source) / 24, 1 << 20) * 4 / 3 + 16;
+    }
+
     public void writeToFile() throws IOException {
         if (isDirty) {
-            ParamCsvFile.writeBackup(file, headerLine);
-
-            PrintWriter out = new PrintWriter(new FileWriter(file));
-            for (CsvData data : srgMemberName2CsvData.values())
-                out.println(data.toCsv());
-
-            out.close();
+            try (CsvFileWriter out = new CsvFileWriter(file)) {
+                out.println(headerLine);
+                for (CsvData data : new TreeMap<>(srgMemberName2CsvData).values())
+                    out.println(data.toCsv());
+                out.commit();
+            }
 
             isDirty = false;
         }
     }
 
+    String getHeaderLine() {
+        return headerLine;
+    }
+
+    Collection<CsvData> getCsvData() {
+        return srgMemberName2CsvData.values();
+    }
+
+    void putCsvData(CsvData csvData) {
+        srgMemberName2CsvData.put(csvData.getSrgName(), csvData);
+    }
+
     public boolean hasCsvDataForKey(String srgName) {
         return srgMemberName2CsvData.containsKey(srgName);
     }
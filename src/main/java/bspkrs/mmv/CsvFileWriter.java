@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Rewrites a CSV file without ever leaving it half written. Lines go to a temporary file next to it through one large
+ * buffer; {@link #commit()} syncs that file, keeps the old file as a timestamped backup and moves the new one into place in a
+ * single rename. Closing without committing discards the temporary file and leaves the original untouched. Only the newest
+ * {@link #MAX_BACKUPS} backups of a file are kept.
+ */
+final class CsvFileWriter implements Closeable {
+    static final int MAX_BACKUPS = 5;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final File file;
+    private final File tmp;
+    private final FileChannel channel;
+    private final Writer out;
+    private boolean committed;
+
+    CsvFileWriter(File file) throws IOException {
+        this.file = file;
+        this.tmp = new File(file.getPath() + ".tmp");
+        channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        // CSVs are read with the platform charset, so they are written with it too
+        out = new BufferedWriter(Channels.newWriter(channel, Charset.defaultCharset().newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+    }
+
+    void println(String line) throws IOException {
+        out.write(line);
+        out.write(System.lineSeparator());
+    }
+
+    /**
+     * Replaces the original file with everything written so far.
+     */
+    void commit() throws IOException {
+        out.flush();
+        channel.force(true);
+        out.close();
+        committed = true;
+
+        Path target = file.toPath();
+        if (file.exists())
+            backup(target);
+
+        try {
+            Files.move(tmp.toPath(), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        pruneBackups();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            out.close();
+            if (tmp.exists() && !tmp.delete())
+                System.out.println("Failed to delete temporary CSV file!");
+        }
+    }
+
+    private void backup(Path target) throws IOException {
+        Path bak = Paths.get(file.getPath() + "_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".bak");
+        if (Files.exists(bak))
+            return; // already backed up this second
+
+        // a hard link keeps the old contents once the rename replaces the file, without copying them
+        try {
+            Files.createLink(bak, target);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(target, bak);
+        }
+    }
+
+    private void pruneBackups() {
+        final String prefix = file.getName() + "_";
+        File[] backups = file.getAbsoluteFile().getParentFile().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(prefix) && name.endsWith(".bak");
+            }
+        });
+        if (backups == null || backups.length <= MAX_BACKUPS)
+            return;
+
+        // the timestamps in the names sort oldest first
+        Arrays.sort(backups);
+        for (int i = 0; i < backups.length - MAX_BACKUPS; i++)
+            if (!backups[i].delete())
+                System.out.println("Failed to delete old backup " + backups[i].getName() + "!");
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads RFC 4180 CSV records one at a time from a character stream. Fields may be quoted, in which case they can contain
+ * commas, line breaks and doubled quotes. Records end at LF or CRLF. The fields of the current record are kept in one shared
+ * buffer, so they can be turned into pooled strings or numbers without creating a String per field first.
+ */
+final class CsvReader implements Closeable {
+    private final Reader in;
+    private final char[] buf = new char[1 << 14];
+    private int pos, limit;
+
+    private final StringBuilder record = new StringBuilder(256);
+    private int[] fieldStart = new int[8];
+    private int[] fieldEnd = new int[8];
+    private boolean[] fieldQuoted = new boolean[8];
+    private int fieldCount;
+
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next record, skipping empty lines. Returns false at the end of the stream.
+     */
+    boolean next() throws IOException {
+        do {
+            if (!readRecord())
+                return false;
+        } while (fieldCount == 1 && fieldStart[0] == fieldEnd[0] && !fieldQuoted[0]);
+
+        return true;
+    }
+
+    int size() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns field {@code i} of the current record, or "" if the record is shorter.
+     */
+    String get(int i, StringPool pool) {
+        if (i >= fieldCount)
+            return "";
+        return pool.intern(record, fieldStart[i], fieldEnd[i]);
+    }
+
+    /**
+     * Returns fields {@code i} onwards joined by commas, for a last column whose commas were not quoted.
+     */
+    String getRest(int i, StringPool pool) {
+        if (i >= fieldCount - 1)
+            return get(i, pool);
+
+        StringBuilder rest = new StringBuilder(record.length() - fieldStart[i] + fieldCount - i);
+        for (int j = i; j < fieldCount; j++) {
+            if (j > i)
+                rest.append(',');
+            rest.append(record, fieldStart[j], fieldEnd[j]);
+        }
+        return pool.intern(rest.toString());
+    }
+
+    boolean isQuoted(int i) {
+        return i < fieldCount && fieldQuoted[i];
+    }
+
+    /**
+     * Returns field {@code i} of the current record as a decimal integer.
+     */
+    int getInt(int i) throws IOException {
+        if (i >= fieldCount || fieldStart[i] == fieldEnd[i])
+            throw new IOException("Missing number in CSV field " + (i + 1));
+
+        int start = fieldStart[i], end = fieldEnd[i];
+        boolean negative = record.charAt(start) == '-';
+        if (negative && ++start == end)
+            throw new IOException("Invalid number in CSV field " + (i + 1) + ": -");
+
+        int value = 0;
+        for (int j = start; j < end; j++) {
+            char c = record.charAt(j);
+            if (c < '0' || c > '9')
+                throw new IOException("Invalid number in CSV field " + (i + 1) + ": " + record.substring(fieldStart[i], end));
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean readRecord() throws IOException {
+        record.setLength(0);
+        fieldCount = 0;
+
+        int c = read();
+        if (c == -1)
+            return false;
+
+        while (true) {
+            int start = record.length();
+            boolean quoted = c == '"';
+
+            if (quoted) {
+                while (true) {
+                    c = read();
+                    if (c == -1)
+                        break; // unterminated quote: keep what was read
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"')
+                            break;
+                    }
+                    record.append((char) c);
+                }
+                // anything between the closing quote and the next separator is kept as is
+                while (c != -1 && c != ',' && c != '\n' && c != '\r') {
+                    record.append((char) c);
+                    c = read();
+                }
+            } else {
+                while (c != -1 && c != ',' && c != '\n' && c != '\r') {
+                    record.append((char) c);
+                    c = read();
+                }
+            }
+
+            addField(start, record.length(), quoted);
+
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+
+            if (c == '\r' && peek() == '\n')
+                read();
+            return true;
+        }
+    }
+
+    private void addField(int start, int end, boolean quoted) {
+        if (fieldCount == fieldStart.length) {
+            fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+            fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+            fieldQuoted = Arrays.copyOf(fieldQuoted, fieldCount * 2);
+        }
+        fieldStart[fieldCount] = start;
+        fieldEnd[fieldCount] = end;
+        fieldQuoted[fieldCount] = quoted;
+        fieldCount++;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill())
+            return -1;
+        return buf[pos++];
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill())
+            return -1;
+        return buf[pos];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0)
+            return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+}
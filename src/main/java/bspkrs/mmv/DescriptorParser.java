@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import java.util.Arrays;
+
+/**
+ * Splits the parameter list of a JVM method descriptor into one string per parameter type in a single pass over its
+ * characters. The result is exactly what matching {@code \[*L[^;]+;|\[[ZBCSIFDJ]|[ZBCSIFDJ]} over the text between the
+ * parentheses gives, including its quirks (a multi-dimensional primitive array yields its last two characters only).
+ * Primitive types are shared constants, so only object types allocate.
+ */
+final class DescriptorParser {
+    private static final String PRIMITIVES = "ZBCSIFDJ";
+    private static final String[] PRIMITIVE_TYPES = new String[PRIMITIVES.length()];
+    private static final String[] PRIMITIVE_ARRAY_TYPES = new String[PRIMITIVES.length()];
+    private static final String[] NONE = new String[0];
+
+    static {
+        for (int i = 0; i < PRIMITIVES.length(); i++) {
+            PRIMITIVE_TYPES[i] = String.valueOf(PRIMITIVES.charAt(i));
+            PRIMITIVE_ARRAY_TYPES[i] = "[" + PRIMITIVES.charAt(i);
+        }
+    }
+
+    private DescriptorParser() {
+    }
+
+    /**
+     * Returns the types in {@code desc} from {@code start} (inclusive) to {@code end} (exclusive).
+     */
+    static String[] parameterTypes(String desc, int start, int end) {
+        String[] types = NONE;
+        int count = 0;
+
+        int i = start;
+        while (i < end) {
+            String type = null;
+            int next = i + 1;
+
+            int afterDims = i;
+            while (afterDims < end && desc.charAt(afterDims) == '[')
+                afterDims++;
+
+            int semicolon;
+            if (afterDims < end && desc.charAt(afterDims) == 'L'
+                    && (semicolon = desc.indexOf(';', afterDims + 1)) > afterDims + 1 && semicolon < end) {
+                type = desc.substring(i, semicolon + 1);
+                next = semicolon + 1;
+            } else if (desc.charAt(i) == '[' && i + 1 < end && PRIMITIVES.indexOf(desc.charAt(i + 1)) != -1) {
+                type = PRIMITIVE_ARRAY_TYPES[PRIMITIVES.indexOf(desc.charAt(i + 1))];
+                next = i + 2;
+            } else if (PRIMITIVES.indexOf(desc.charAt(i)) != -1) {
+                type = PRIMITIVE_TYPES[PRIMITIVES.indexOf(desc.charAt(i))];
+            }
+
+            if (type != null) {
+                if (count == types.length)
+                    types = Arrays.copyOf(types, Math.max(4, count * 2));
+                types[count++] = type;
+            }
+            i = next;
+        }
+
+        return count == types.length ? types : Arrays.copyOf(types, count);
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import bspkrs.mmv.McpBotCommand.MemberType;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+
+/**
+ * Keeps the edits made to one mapping version in an append-only file next to its CSVs, so an edit costs one short write
+ * instead of a rewrite of the whole CSV. Each line is the member type followed by the edited CSV row. Lines reach the OS as
+ * soon as they are appended; syncing them to disk is batched. The journal is replayed on load and emptied once its edits
+ * have been written into the CSVs.
+ */
+final class EditJournal implements Closeable {
+    static final String FILE_NAME = "edits.journal";
+
+    /**
+     * Past this size the edits are written into the CSVs and the journal starts over.
+     */
+    static final long COMPACT_THRESHOLD = 256 * 1024;
+
+    private static final int SYNC_BATCH = 32;
+    private static final long SYNC_DELAY_MS = 1000;
+
+    private static final ScheduledExecutorService SYNC_EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "MMV Journal");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final File file;
+    // held for each fsync, so that the stream is not closed under it
+    private final Object syncLock = new Object();
+    private FileOutputStream stream;
+    private Writer out;
+    private int unsynced;
+    private ScheduledFuture<?> pendingSync;
+    private boolean compactionQueued;
+
+    EditJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Replays the journalled edits in the order they were made. A line cut short by a crash is ignored.
+     */
+    void replay(Replay replay) throws IOException {
+        if (!file.isFile())
+            return;
+
+        StringPool pool = new StringPool();
+        try (CsvReader in = new CsvReader(new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))) {
+            while (in.next()) {
+                MemberType type;
+                try {
+                    type = MemberType.valueOf(in.get(0, pool));
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+
+                if (type == MemberType.PARAM ? in.size() < 4 : in.size() < 5)
+                    continue;
+
+                replay.edit(type, in.get(1, pool), in.get(2, pool), type == MemberType.PARAM ? "" : in.getRest(4, pool));
+            }
+        }
+    }
+
+    synchronized void append(MemberType type, String csvRow) throws IOException {
+        if (out == null) {
+            stream = new FileOutputStream(file, true);
+            out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        }
+
+        out.write(type.name());
+        out.write(',');
+        out.write(csvRow);
+        out.write('\n');
+        out.flush();
+
+        // the caller is usually the EDT, so even a full batch is synced on the journal thread
+        if (++unsynced >= SYNC_BATCH)
+            scheduleSync(0);
+        else if (pendingSync == null)
+            scheduleSync(SYNC_DELAY_MS);
+    }
+
+    private void scheduleSync(long delayMs) {
+        if (pendingSync != null) {
+            if (delayMs > 0 || pendingSync.getDelay(TimeUnit.MILLISECONDS) <= 0)
+                return;
+            pendingSync.cancel(false);
+        }
+
+        pendingSync = SYNC_EXECUTOR.schedule(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                sync();
+                return null;
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Forces the appended edits to disk. The journal's monitor is only held for the bookkeeping, so appends go on while the
+     * fsync runs; {@code syncLock} keeps the stream from being closed under it.
+     */
+    void sync() throws IOException {
+        synchronized (syncLock) {
+            FileOutputStream toSync;
+            int count;
+            synchronized (this) {
+                if (pendingSync != null) {
+                    pendingSync.cancel(false);
+                    pendingSync = null;
+                }
+                if (out == null || unsynced == 0)
+                    return;
+
+                out.flush();
+                toSync = stream;
+                count = unsynced;
+                unsynced = 0;
+            }
+
+            try {
+                toSync.getFD().sync();
+            } catch (IOException e) {
+                synchronized (this) {
+                    unsynced += count;
+                }
+                throw e;
+            }
+        }
+    }
+
+    long length() {
+        return file.length();
+    }
+
+    /**
+     * Runs {@code compaction} on the journal thread, so that the CSVs are not rewritten on the thread that made the edit. Does
+     * nothing while an earlier compaction is still queued.
+     */
+    synchronized void compactLater(final Callable<Void> compaction) {
+        if (compactionQueued)
+            return;
+
+        compactionQueued = true;
+        SYNC_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compaction.call();
+                } catch (Exception e) {
+                    System.err.println("Unable to write edits into the CSV files: " + e);
+                } finally {
+                    synchronized (EditJournal.this) {
+                        compactionQueued = false;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Empties the journal once its edits are safely in the CSVs.
+     */
+    void clear() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                closeStream();
+                if (file.exists() && !file.delete())
+                    throw new IOException("Unable to delete " + file);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                closeStream();
+            }
+        }
+    }
+
+    private void closeStream() throws IOException {
+        if (pendingSync != null) {
+            pendingSync.cancel(false);
+            pendingSync = null;
+        }
+
+        if (out != null) {
+            out.flush();
+            if (unsynced > 0)
+                stream.getFD().sync();
+            unsynced = 0;
+            out.close();
+            out = null;
+            stream = null;
+        }
+    }
+
+    interface Replay {
+        void edit(MemberType type, String srgName, String mcpName, String comment);
+    }
+}
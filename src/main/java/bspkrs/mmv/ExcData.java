@@ -15,10 +15,7 @@
  */
 package bspkrs.mmv;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class ExcData implements Comparable<ExcData> {
     private final String srgOwner;
@@ -46,8 +43,26 @@ public class ExcData implements Comparable<ExcData> {
         parameters = genParamNames(ExcData.getSrgId(srgName), paramTypes, isStatic);
     }
 
+    ExcData(String srgOwner, String srgName, String descriptor, String[] exceptions, String[] parameters, String[] paramTypes) {
+        this.srgOwner = srgOwner;
+        this.srgName = srgName;
+        this.descriptor = descriptor;
+        this.exceptions = exceptions;
+        this.parameters = parameters;
+        this.paramTypes = paramTypes;
+    }
+
+    /**
+     * Replaces the names and types of this entry with their pooled copies and returns this entry.
+     */
+    ExcData intern(StringPool pool) {
+        pool.internAll(exceptions);
+        pool.internAll(parameters);
+        pool.internAll(paramTypes);
+        return this;
+    }
+
     public static String[] splitMethodDesc(String desc) {
-        //\[*L[^;]+;|\[[ZBCSIFDJ]|[ZBCSIFDJ]
         int beginIndex = desc.indexOf('(');
         int endIndex = desc.lastIndexOf(')');
         if (((beginIndex == -1) && (endIndex != -1)) || ((beginIndex != -1) && (endIndex == -1))) {
@@ -55,22 +70,10 @@ public class ExcData implements Comparable<ExcData> {
             System.err.println(endIndex);
             throw new RuntimeException();
         }
-        String x0;
-        if ((beginIndex == -1) && (endIndex == -1)) {
-            x0 = desc;
-        } else {
-            x0 = desc.substring(beginIndex + 1, endIndex);
-        }
-        Pattern pattern = Pattern.compile("\\[*L[^;]+;|\\[[ZBCSIFDJ]|[ZBCSIFDJ]");
-        Matcher matcher = pattern.matcher(x0);
-
-        ArrayList<String> listMatches = new ArrayList<>();
-
-        while (matcher.find()) {
-            listMatches.add(matcher.group());
-        }
-
-        return listMatches.toArray(new String[0]);
+        if ((beginIndex == -1) && (endIndex == -1))
+            return DescriptorParser.parameterTypes(desc, 0, desc.length());
+        else
+            return DescriptorParser.parameterTypes(desc, beginIndex + 1, endIndex);
     }
 
     public static String[] genParamNames(String srgId, String[] paramTypes, boolean isStatic) {
@@ -91,11 +94,20 @@ public class ExcData implements Comparable<ExcData> {
         return ret;
     }
 
+    /**
+     * Returns the id in the first {@code func_<id>_} of {@code srgName}, where the id is digits with an optional leading 'i', or
+     * {@code srgName} itself if there is none.
+     */
     public static String getSrgId(String srgName) {
-        Pattern pattern = Pattern.compile("func_(i?[0-9]+)_");
-        Matcher matcher = pattern.matcher(srgName);
-        if (matcher.find())
-            return matcher.group(1);
+        for (int i = srgName.indexOf("func_"); i != -1; i = srgName.indexOf("func_", i + 1)) {
+            int start = i + 5;
+            int digits = start < srgName.length() && srgName.charAt(start) == 'i' ? start + 1 : start;
+            int end = digits;
+            while (end < srgName.length() && srgName.charAt(end) >= '0' && srgName.charAt(end) <= '9')
+                end++;
+            if (end > digits && end < srgName.length() && srgName.charAt(end) == '_')
+                return srgName.substring(start, end);
+        }
         return srgName;
     }
 
@@ -139,6 +151,16 @@ public class ExcData implements Comparable<ExcData> {
         return srgName.compareTo(o.srgName);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof ExcData && srgName.equals(((ExcData) o).srgName);
+    }
+
+    @Override
+    public int hashCode() {
+        return srgName.hashCode();
+    }
+
     @Override
     public String toString() {
         return String.format("  Owner: %s\n  SRG Name: %s\n  Descriptor: %s\n  Exceptions: %s\n  Parameters: %s\n  Param Types: %s", srgOwner, srgName, descriptor, Arrays.toString(exceptions), Arrays.toString(parameters), Arrays.toString(paramTypes));
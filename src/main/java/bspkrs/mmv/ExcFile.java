@@ -17,8 +17,10 @@
 package bspkrs.mmv;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
@@ -27,7 +29,23 @@ public class ExcFile {
     public final Map<String, ExcData> srgMethodName2ExcData;
     public final Map<String, ExcData> srgParamName2ExcData;
 
+    /**
+     * Creates an empty instance for {@link MappingSnapshot} to populate.
+     */
+    ExcFile() {
+        srgMethodName2ExcData = new HashMap<>();
+        srgParamName2ExcData = new HashMap<>();
+    }
+
     public ExcFile(File f) throws IOException {
+        this(f.toPath());
+    }
+
+    public ExcFile(Path path) throws IOException {
+        this(path, new StringPool());
+    }
+
+    ExcFile(Path path, StringPool pool) throws IOException {
         srgMethodName2ExcData = new HashMap<>();
         srgParamName2ExcData = new HashMap<>();
         // example lines:
@@ -37,7 +55,7 @@ public class ExcFile {
         // net/minecraft/world/chunk/storage/AnvilChunkLoader.func_75818_b()V=|
         // net/minecraft/server/MinecraftServer.func_145747_a(Lnet/minecraft/util/IChatComponent;)V=|p_145747_1_
 
-        try (Scanner in = new Scanner(new FileReader(f))) {
+        try (Scanner in = new Scanner(new InputStreamReader(Files.newInputStream(path)))) {
             while (in.hasNextLine()) {
                 if (in.hasNext("#")) {
                     in.nextLine();
@@ -45,7 +63,7 @@ public class ExcFile {
                 }
 
                 in.useDelimiter("\\.");
-                String srgOwner = in.next();
+                String srgOwner = pool.intern(in.next());
                 in.useDelimiter("\\(");
 
                 if (!in.hasNext())
@@ -54,16 +72,16 @@ public class ExcFile {
                     else
                         break;
 
-                String srgName = in.next().substring(1);
+                String srgName = pool.intern(in.next().substring(1));
                 in.useDelimiter("=");
-                String descriptor = in.next();
+                String descriptor = pool.intern(in.next());
                 in.useDelimiter("\\|");
                 String excs = in.next().substring(1);
                 String params = in.nextLine().substring(1);
 
                 ExcData toAdd = new ExcData(srgOwner, srgName, descriptor,
                         (excs.length() > 0 ? excs.split(",") : new String[0]),
-                        (params.length() > 0 ? params.split(",") : new String[0]));
+                        (params.length() > 0 ? params.split(",") : new String[0])).intern(pool);
 
                 ExcData existing = srgMethodName2ExcData.get(srgName);
 
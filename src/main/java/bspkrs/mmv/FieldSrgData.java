@@ -27,4 +27,14 @@ public class FieldSrgData extends MemberSrgData implements Comparable<FieldSrgDa
         else
             return 1;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof FieldSrgData && getSrgName().equals(((FieldSrgData) o).getSrgName());
+    }
+
+    @Override
+    public int hashCode() {
+        return getSrgName().hashCode();
+    }
 }
@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import bspkrs.mmv.gui.MappingGui;
+import immibis.bon.IProgressListener;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Downloads a URL to a file. The bytes go to {@code <name>.part} first and the digest is computed while they stream in, so the
+ * finished file never has to be read back. A download that fails half way leaves the part file behind, and the next attempt
+ * asks the server for the rest with an HTTP range request, as long as the remote file is still the same one.
+ */
+final class HttpDownloader {
+    static final int CONNECT_TIMEOUT = 15000;
+    static final int READ_TIMEOUT = 30000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+    private final URL url;
+    private final String digestType;
+    private final IProgressListener progress;
+
+    /**
+     * @param digestType digest algorithm to compute while downloading, or null for none
+     * @param progress   told the download size in KB and how much of it has arrived; may be null
+     */
+    HttpDownloader(URL url, String digestType, IProgressListener progress) {
+        this.url = url;
+        this.digestType = digestType;
+        this.progress = progress;
+    }
+
+    static URLConnection openConnection(URL url) throws IOException {
+        URLConnection uc = url.openConnection();
+        uc.setConnectTimeout(CONNECT_TIMEOUT);
+        uc.setReadTimeout(READ_TIMEOUT);
+        uc.addRequestProperty("User-Agent", "MMV/" + MappingGui.VERSION_NUMBER);
+        return uc;
+    }
+
+    /**
+     * Downloads to {@code target} and returns the hex digest of the whole file, or null without a digest type.
+     *
+     * @param version identifies the remote file, such as its published digest; a part file from another version is discarded
+     *                instead of resumed. May be empty if unknown, in which case the server's ETag or Last-Modified date decides.
+     */
+    String download(File target, String version) throws IOException, NoSuchAlgorithmException {
+        String digest = fetch(target, version);
+        Files.move(partFile(target).toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return digest;
+    }
+
+    private String fetch(File target, String version) throws IOException, NoSuchAlgorithmException {
+        File part = partFile(target);
+        File partInfo = partInfoFile(target);
+        MessageDigest md = digestType != null ? MessageDigest.getInstance(digestType) : null;
+
+        // line 1: the version the part belongs to, line 2: the server's validator for it
+        String[] info = RemoteZipHandler.loadTextFromFile(partInfo, new String[0]);
+        String validator = info.length > 1 ? info[1] : "";
+        long offset = part.exists() && info.length > 0 && info[0].equals(version) && (!version.isEmpty() || !validator.isEmpty())
+                ? part.length() : 0;
+
+        URLConnection uc = openConnection(url);
+        if (offset > 0) {
+            uc.addRequestProperty("Range", "bytes=" + offset + "-");
+            if (!validator.isEmpty())
+                uc.addRequestProperty("If-Range", validator);
+        }
+
+        if (offset > 0 && uc instanceof HttpURLConnection && ((HttpURLConnection) uc).getResponseCode() == HTTP_RANGE_NOT_SATISFIABLE) {
+            // Nothing is left after the part file. It only holds the whole file if the server still has the same one at that size
+            if (!("bytes */" + offset).equals(uc.getHeaderField("Content-Range")) || !validator.isEmpty() && !validator.equals(validator(uc))) {
+                discardPart(target);
+                return fetch(target, version);
+            }
+            receive(target, new ByteArrayInputStream(new byte[0]), offset, 0, md);
+        } else {
+            try (InputStream is = uc.getInputStream()) {
+                // Anything but a partial response starting right where the part file ends means the whole file is coming
+                if (offset > 0 && !(uc instanceof HttpURLConnection && ((HttpURLConnection) uc).getResponseCode() == HttpURLConnection.HTTP_PARTIAL
+                        && String.valueOf(uc.getHeaderField("Content-Range")).startsWith("bytes " + offset + "-")))
+                    offset = 0;
+
+                if (offset == 0)
+                    writeInfo(partInfo, version, validator(uc));
+
+                receive(target, is, offset, uc.getContentLengthLong(), md);
+            }
+        }
+
+        if (partInfo.exists() && !partInfo.delete())
+            System.out.println("Failed to delete partial download info!");
+
+        return md != null ? RemoteZipHandler.toHex(md.digest()) : null;
+    }
+
+    /**
+     * Passes the first {@code offset} bytes of the part file and then {@code remote} through the digest, and appends
+     * {@code remote} to the part file.
+     *
+     * @param length the number of bytes {@code remote} will send, or -1 if unknown
+     */
+    private void receive(File target, InputStream remote, long offset, long length, MessageDigest md) throws IOException {
+        File part = partFile(target);
+        int totalKb = length >= 0 ? (int) ((offset + length) >> 10) : -1;
+        if (progress != null)
+            progress.start(totalKb, "Downloading " + target.getName());
+
+        try (InputStream prefix = offset > 0 ? new FileInputStream(part) : null;
+             OutputStream out = new FileOutputStream(part, offset > 0)) {
+            DownloadStream in = new DownloadStream(prefix, offset, remote, out, md, totalKb);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (in.read(buffer, 0, buffer.length) != -1)
+                ;
+        }
+    }
+
+    /**
+     * Fetches a small text file, such as a digest. Given the {@code validator} of a copy fetched earlier, the server is asked to
+     * send the file only if it has changed since: with If-None-Match for an ETag and If-Modified-Since for a date.
+     */
+    static Text fetchText(URL url, String validator) throws IOException {
+        URLConnection uc = openConnection(url);
+        if (validator != null && !validator.isEmpty())
+            uc.addRequestProperty(isEntityTag(validator) ? "If-None-Match" : "If-Modified-Since", validator);
+
+        if (uc instanceof HttpURLConnection && ((HttpURLConnection) uc).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            String newValidator = validator(uc);
+            return new Text(null, newValidator != null ? newValidator : validator);
+        }
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(uc.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null)
+                lines.add(line);
+        }
+        return new Text(lines.toArray(new String[0]), validator(uc));
+    }
+
+    /**
+     * The server's ETag for the response, or else its Last-Modified date; null if it sent neither.
+     */
+    private static String validator(URLConnection uc) {
+        String etag = uc.getHeaderField("ETag");
+        return etag != null ? etag : uc.getHeaderField("Last-Modified");
+    }
+
+    private static boolean isEntityTag(String validator) {
+        return validator.startsWith("\"") || validator.startsWith("W/");
+    }
+
+    /**
+     * Throws away a partial download, so that the next attempt starts over.
+     */
+    static void discardPart(File target) {
+        File part = partFile(target);
+        File partInfo = partInfoFile(target);
+        if (part.exists() && !part.delete())
+            System.out.println("Failed to delete partial download!");
+        if (partInfo.exists() && !partInfo.delete())
+            System.out.println("Failed to delete partial download info!");
+    }
+
+    private static File partFile(File target) {
+        return new File(target.getParentFile(), target.getName() + ".part");
+    }
+
+    private static File partInfoFile(File target) {
+        return new File(target.getParentFile(), target.getName() + ".part.info");
+    }
+
+    private static void writeInfo(File partInfo, String version, String validator) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(partInfo))) {
+            out.println(version);
+            out.println(validator != null ? validator : "");
+        }
+    }
+
+    /**
+     * The outcome of {@link #fetchText}.
+     */
+    static final class Text {
+        /**
+         * The lines of the file, or null if the copy fetched earlier is still current.
+         */
+        final String[] lines;
+        /**
+         * What to revalidate this copy with next time, or null if the server gave nothing to go by.
+         */
+        final String validator;
+
+        private Text(String[] lines, String validator) {
+            this.lines = lines;
+            this.validator = validator;
+        }
+    }
+
+    /**
+     * The whole file: first what an earlier attempt left in the part file, then the rest as it arrives, which is appended to
+     * the part file. Everything read passes through the digest.
+     */
+    private final class DownloadStream extends InputStream {
+        private final InputStream prefix;
+        private final InputStream remote;
+        private final OutputStream out;
+        private final MessageDigest md;
+        private final int totalKb;
+        private long prefixLeft;
+        private long done;
+        private int reportedKb = -1;
+
+        DownloadStream(InputStream prefix, long prefixLength, InputStream remote, OutputStream out, MessageDigest md, int totalKb) {
+            this.prefix = prefix;
+            this.prefixLeft = prefixLength;
+            this.remote = remote;
+            this.out = out;
+            this.md = md;
+            this.totalKb = totalKb;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n;
+            while ((n = read(b, 0, 1)) == 0)
+                ;
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+
+            int n;
+            if (prefixLeft > 0) {
+                n = prefix.read(b, off, (int) Math.min(len, prefixLeft));
+                if (n < 0)
+                    throw new EOFException("Partial download is shorter than expected");
+                prefixLeft -= n;
+            } else {
+                n = remote.read(b, off, len);
+                if (n < 0)
+                    return -1;
+                out.write(b, off, n);
+            }
+
+            if (md != null)
+                md.update(b, off, n);
+            done += n;
+
+            // report each percent, or each 256 KB when the size is unknown
+            int kb = (int) (done >> 10);
+            if (progress != null && kb - reportedKb >= (totalKb > 0 ? Math.max(totalKb / 100, 1) : 256)) {
+                progress.set(kb);
+                reportedKb = kb;
+            }
+
+            return n;
+        }
+    }
+}
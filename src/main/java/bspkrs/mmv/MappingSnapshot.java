@@ -0,0 +1,591 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.Map.Entry;
+
+/**
+ * Binary image of a fully loaded and linked mapping set. The snapshot is written next to the extracted CSVs after a
+ * successful text load and is only trusted while its key (digests plus source file sizes and timestamps) still matches.
+ * <p>
+ * Layout: a string table followed by class, method, field and EXC tables that refer to strings and to each other by
+ * index, then the CSV rows and the SRG -> CSV links. Every object records which maps and sets referenced it so the
+ * restored graph is identical to the parsed one, including the set de-duplication done by the parsers.
+ */
+final class MappingSnapshot {
+    private static final int MAGIC = 0x4D4D5653; // MMVS
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int CLIENT_ONLY = 1;
+    private static final int IN_PKG_SET = 1 << 1;
+    private static final int HAS_METHOD_SET = 1 << 2;
+    private static final int HAS_FIELD_SET = 1 << 3;
+
+    SrgFile srgFileData;
+    ExcFile excFileData;
+    CsvFile csvFieldData, csvMethodData;
+    ParamCsvFile csvParamData;
+
+    private MappingSnapshot() {
+    }
+
+    /**
+     * Builds the cache key for a snapshot from the digest files in the given directories and the size and timestamp of
+     * every source file, so a new download or a CSV save invalidates it.
+     */
+    static String buildKey(File[] digestDirs, File... sources) {
+        StringBuilder key = new StringBuilder("v").append(FORMAT_VERSION);
+
+        for (File dir : digestDirs) {
+            File[] digests = dir.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File d, String name) {
+                    return name.endsWith(".sha1");
+                }
+            });
+            if (digests == null)
+                continue;
+
+            Arrays.sort(digests);
+            for (File digest : digests)
+                key.append('|').append(digest.getName()).append('=').append(RemoteZipHandler.loadTextFromFile(digest, new String[]{""})[0].trim());
+        }
+
+        for (File source : sources)
+            key.append('|').append(source.getName()).append(':').append(source.length()).append(':').append(source.lastModified());
+
+        return key.toString();
+    }
+
+    /**
+     * Reads the snapshot and fills the link maps, or returns null if it is missing, stale or unreadable.
+     */
+    @SuppressWarnings("unchecked")
+    static MappingSnapshot read(File file, String key, File fieldsCsv, File methodsCsv, File paramsCsv,
+                                Map<MethodSrgData, CsvData> srgMethodData2CsvData, Map<FieldSrgData, CsvData> srgFieldData2CsvData,
+                                Map<ExcData, Map<String, ParamCsvData>> excData2MapParamCsvData) {
+        if (!file.isFile())
+            return null;
+
+        try {
+            Reader in = new Reader(Files.readAllBytes(file.toPath()));
+            if (in.fixedInt() != MAGIC || in.fixedInt() != FORMAT_VERSION || !key.equals(in.utf8()))
+                return null;
+
+            MappingSnapshot snapshot = new MappingSnapshot();
+            String[] strings = new String[in.varInt()];
+            for (int i = 0; i < strings.length; i++)
+                strings[i] = in.utf8();
+
+            SrgFile srg = snapshot.srgFileData = new SrgFile();
+
+            ClassSrgData[] classes = new ClassSrgData[in.varInt()];
+            List<Set<MethodSrgData>> classMethods = new ArrayList<Set<MethodSrgData>>(Collections.<Set<MethodSrgData>>nCopies(classes.length, null));
+            List<Set<FieldSrgData>> classFields = new ArrayList<Set<FieldSrgData>>(Collections.<Set<FieldSrgData>>nCopies(classes.length, null));
+            for (int i = 0; i < classes.length; i++) {
+                String obfName = strings[in.varInt()];
+                String srgName = strings[in.varInt()];
+                String pkgName = strings[in.varInt()];
+                int flags = in.varInt();
+                ClassSrgData classData = classes[i] = new ClassSrgData(obfName, srgName, pkgName, (flags & CLIENT_ONLY) != 0);
+
+                int nameKey = in.optVarInt();
+                if (nameKey != -1)
+                    srg.srgClassName2ClassData.put(strings[nameKey], classData);
+
+                if ((flags & IN_PKG_SET) != 0) {
+                    if (!srg.srgPkg2ClassDataSet.containsKey(pkgName))
+                        srg.srgPkg2ClassDataSet.put(pkgName, new TreeSet<ClassSrgData>());
+                    srg.srgPkg2ClassDataSet.get(pkgName).add(classData);
+                }
+
+                if ((flags & HAS_METHOD_SET) != 0) {
+                    if (!srg.class2MethodDataSet.containsKey(classData))
+                        srg.class2MethodDataSet.put(classData, new TreeSet<MethodSrgData>());
+                    classMethods.set(i, srg.class2MethodDataSet.get(classData));
+                }
+
+                if ((flags & HAS_FIELD_SET) != 0) {
+                    if (!srg.class2FieldDataSet.containsKey(classData))
+                        srg.class2FieldDataSet.put(classData, new TreeSet<FieldSrgData>());
+                    classFields.set(i, srg.class2FieldDataSet.get(classData));
+                }
+            }
+
+            MethodSrgData[] methods = new MethodSrgData[in.varInt()];
+            for (int i = 0; i < methods.length; i++) {
+                String obfOwner = strings[in.varInt()];
+                String obfName = strings[in.varInt()];
+                String obfDescriptor = strings[in.varInt()];
+                String srgOwner = strings[in.varInt()];
+                String srgPkg = strings[in.varInt()];
+                String srgName = strings[in.varInt()];
+                String srgDescriptor = strings[in.varInt()];
+                MethodSrgData methodData = methods[i] = new MethodSrgData(obfOwner, obfName, obfDescriptor, srgOwner, srgPkg, srgName, srgDescriptor,
+                        (in.varInt() & CLIENT_ONLY) != 0);
+
+                int setOwner = in.optVarInt();
+                if (setOwner != -1)
+                    classMethods.get(setOwner).add(methodData);
+
+                int nameKey = in.optVarInt();
+                if (nameKey != -1)
+                    srg.srgMethodName2MethodData.put(strings[nameKey], methodData);
+            }
+            for (int i = in.varInt(); i > 0; i--)
+                srg.srgMethodName2ClassData.put(strings[in.varInt()], classes[in.varInt()]);
+
+            FieldSrgData[] fields = new FieldSrgData[in.varInt()];
+            for (int i = 0; i < fields.length; i++) {
+                String obfOwner = strings[in.varInt()];
+                String obfName = strings[in.varInt()];
+                String srgOwner = strings[in.varInt()];
+                String srgPkg = strings[in.varInt()];
+                String srgName = strings[in.varInt()];
+                FieldSrgData fieldData = fields[i] = new FieldSrgData(obfOwner, obfName, srgOwner, srgPkg, srgName, (in.varInt() & CLIENT_ONLY) != 0);
+
+                int setOwner = in.optVarInt();
+                if (setOwner != -1)
+                    classFields.get(setOwner).add(fieldData);
+
+                int nameKey = in.optVarInt();
+                if (nameKey != -1)
+                    srg.srgFieldName2FieldData.put(strings[nameKey], fieldData);
+            }
+            for (int i = in.varInt(); i > 0; i--)
+                srg.srgFieldName2ClassData.put(strings[in.varInt()], classes[in.varInt()]);
+
+            ExcFile exc = snapshot.excFileData = new ExcFile();
+            ExcData[] excs = new ExcData[in.varInt()];
+            for (int i = 0; i < excs.length; i++) {
+                String srgOwner = strings[in.varInt()];
+                String srgName = strings[in.varInt()];
+                String descriptor = strings[in.varInt()];
+                String[] exceptions = in.stringArray(strings);
+                String[] parameters = in.stringArray(strings);
+                excs[i] = new ExcData(srgOwner, srgName, descriptor, exceptions, parameters, in.stringArray(strings));
+            }
+            for (int i = in.varInt(); i > 0; i--)
+                exc.srgMethodName2ExcData.put(strings[in.varInt()], excs[in.varInt()]);
+            for (int i = in.varInt(); i > 0; i--)
+                exc.srgParamName2ExcData.put(strings[in.varInt()], excs[in.varInt()]);
+
+            snapshot.csvFieldData = new CsvFile(fieldsCsv, strings[in.varInt()]);
+            CsvData[] fieldRows = readCsvRows(in, strings, snapshot.csvFieldData);
+            snapshot.csvMethodData = new CsvFile(methodsCsv, strings[in.varInt()]);
+            CsvData[] methodRows = readCsvRows(in, strings, snapshot.csvMethodData);
+
+            snapshot.csvParamData = new ParamCsvFile(paramsCsv, strings[in.varInt()]);
+            ParamCsvData[] paramRows = new ParamCsvData[in.varInt()];
+            for (int i = 0; i < paramRows.length; i++) {
+                String srgName = strings[in.varInt()];
+                String mcpName = strings[in.varInt()];
+                paramRows[i] = new ParamCsvData(srgName, mcpName, in.signedVarInt());
+                snapshot.csvParamData.putCsvData(paramRows[i]);
+            }
+
+            for (int i = in.varInt(); i > 0; i--)
+                srgMethodData2CsvData.put(methods[in.varInt()], methodRows[in.varInt()]);
+            for (int i = in.varInt(); i > 0; i--)
+                srgFieldData2CsvData.put(fields[in.varInt()], fieldRows[in.varInt()]);
+            for (int i = in.varInt(); i > 0; i--) {
+                ExcData excData = excs[in.varInt()];
+                TreeMap<String, ParamCsvData> params = new TreeMap<>();
+                for (int j = in.varInt(); j > 0; j--) {
+                    ParamCsvData paramData = paramRows[in.varInt()];
+                    params.put(paramData.getSrgName(), paramData);
+                }
+                excData2MapParamCsvData.put(excData, params);
+            }
+
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable mapping snapshot " + file + ": " + e);
+            srgMethodData2CsvData.clear();
+            srgFieldData2CsvData.clear();
+            excData2MapParamCsvData.clear();
+            return null;
+        }
+    }
+
+    /**
+     * Writes the loaded mapping set to {@code file}, replacing it atomically. Failures are logged and otherwise ignored;
+     * the next load simply falls back to the text files again.
+     */
+    static void write(File file, String key, SrgFile srg, ExcFile exc, CsvFile csvFieldData, CsvFile csvMethodData, ParamCsvFile csvParamData,
+                      Map<MethodSrgData, CsvData> srgMethodData2CsvData, Map<FieldSrgData, CsvData> srgFieldData2CsvData,
+                      Map<ExcData, Map<String, ParamCsvData>> excData2MapParamCsvData) {
+        File tmp = new File(file.getPath() + ".tmp");
+
+        try {
+            Writer w = new Writer();
+
+            // Collect every distinct object with the maps and sets that reference it
+            Map<ClassSrgData, String> classNameKeys = new IdentityHashMap<>();
+            for (Entry<String, ClassSrgData> entry : srg.srgClassName2ClassData.entrySet())
+                classNameKeys.put(entry.getValue(), entry.getKey());
+            Set<ClassSrgData> inPkgSet = Collections.newSetFromMap(new IdentityHashMap<ClassSrgData, Boolean>());
+            for (Set<ClassSrgData> set : srg.srgPkg2ClassDataSet.values())
+                inPkgSet.addAll(set);
+
+            Map<ClassSrgData, Integer> classIds = new IdentityHashMap<>();
+            List<ClassSrgData> classes = new ArrayList<>();
+            for (ClassSrgData classData : classNameKeys.keySet())
+                addId(classIds, classes, classData);
+            for (ClassSrgData classData : inPkgSet)
+                addId(classIds, classes, classData);
+            for (ClassSrgData classData : srg.class2MethodDataSet.keySet())
+                addId(classIds, classes, classData);
+            for (ClassSrgData classData : srg.class2FieldDataSet.keySet())
+                addId(classIds, classes, classData);
+            for (ClassSrgData classData : srg.srgMethodName2ClassData.values())
+                addId(classIds, classes, classData);
+            for (ClassSrgData classData : srg.srgFieldName2ClassData.values())
+                addId(classIds, classes, classData);
+
+            Map<MethodSrgData, Integer> methodIds = new IdentityHashMap<>();
+            List<MethodSrgData> methods = new ArrayList<>();
+            Map<MethodSrgData, ClassSrgData> methodOwners = new IdentityHashMap<>();
+            for (Entry<ClassSrgData, Set<MethodSrgData>> entry : srg.class2MethodDataSet.entrySet())
+                for (MethodSrgData methodData : entry.getValue()) {
+                    addId(methodIds, methods, methodData);
+                    methodOwners.put(methodData, entry.getKey());
+                }
+            Map<MethodSrgData, String> methodNameKeys = new IdentityHashMap<>();
+            for (Entry<String, MethodSrgData> entry : srg.srgMethodName2MethodData.entrySet()) {
+                addId(methodIds, methods, entry.getValue());
+                methodNameKeys.put(entry.getValue(), entry.getKey());
+            }
+
+            Map<FieldSrgData, Integer> fieldIds = new IdentityHashMap<>();
+            List<FieldSrgData> fields = new ArrayList<>();
+            Map<FieldSrgData, ClassSrgData> fieldOwners = new IdentityHashMap<>();
+            for (Entry<ClassSrgData, Set<FieldSrgData>> entry : srg.class2FieldDataSet.entrySet())
+                for (FieldSrgData fieldData : entry.getValue()) {
+                    addId(fieldIds, fields, fieldData);
+                    fieldOwners.put(fieldData, entry.getKey());
+                }
+            Map<FieldSrgData, String> fieldNameKeys = new IdentityHashMap<>();
+            for (Entry<String, FieldSrgData> entry : srg.srgFieldName2FieldData.entrySet()) {
+                addId(fieldIds, fields, entry.getValue());
+                fieldNameKeys.put(entry.getValue(), entry.getKey());
+            }
+
+            Map<ExcData, Integer> excIds = new IdentityHashMap<>();
+            List<ExcData> excs = new ArrayList<>();
+            for (ExcData excData : exc.srgMethodName2ExcData.values())
+                addId(excIds, excs, excData);
+            for (ExcData excData : exc.srgParamName2ExcData.values())
+                addId(excIds, excs, excData);
+            for (ExcData excData : excData2MapParamCsvData.keySet())
+                addId(excIds, excs, excData);
+
+            // Tables
+            w.varInt(classes.size());
+            for (ClassSrgData classData : classes) {
+                w.string(classData.getObfName());
+                w.string(classData.getSrgName());
+                w.string(classData.getSrgPkgName());
+                w.varInt((classData.isClientOnly() ? CLIENT_ONLY : 0)
+                        | (inPkgSet.contains(classData) ? IN_PKG_SET : 0)
+                        | (srg.class2MethodDataSet.containsKey(classData) ? HAS_METHOD_SET : 0)
+                        | (srg.class2FieldDataSet.containsKey(classData) ? HAS_FIELD_SET : 0));
+                w.nullableString(classNameKeys.get(classData));
+            }
+
+            w.varInt(methods.size());
+            for (MethodSrgData methodData : methods) {
+                w.string(methodData.getObfOwner());
+                w.string(methodData.getObfName());
+                w.string(methodData.getObfDescriptor());
+                w.string(methodData.getSrgOwner());
+                w.string(methodData.getSrgPkg());
+                w.string(methodData.getSrgName());
+                w.string(methodData.getSrgDescriptor());
+                w.varInt(methodData.isClientOnly() ? CLIENT_ONLY : 0);
+                ClassSrgData owner = methodOwners.get(methodData);
+                w.optVarInt(owner != null ? classIds.get(owner) : -1);
+                w.nullableString(methodNameKeys.get(methodData));
+            }
+            w.varInt(srg.srgMethodName2ClassData.size());
+            for (Entry<String, ClassSrgData> entry : srg.srgMethodName2ClassData.entrySet()) {
+                w.string(entry.getKey());
+                w.varInt(classIds.get(entry.getValue()));
+            }
+
+            w.varInt(fields.size());
+            for (FieldSrgData fieldData : fields) {
+                w.string(fieldData.getObfOwner());
+                w.string(fieldData.getObfName());
+                w.string(fieldData.getSrgOwner());
+                w.string(fieldData.getSrgPkg());
+                w.string(fieldData.getSrgName());
+                w.varInt(fieldData.isClientOnly() ? CLIENT_ONLY : 0);
+                ClassSrgData owner = fieldOwners.get(fieldData);
+                w.optVarInt(owner != null ? classIds.get(owner) : -1);
+                w.nullableString(fieldNameKeys.get(fieldData));
+            }
+            w.varInt(srg.srgFieldName2ClassData.size());
+            for (Entry<String, ClassSrgData> entry : srg.srgFieldName2ClassData.entrySet()) {
+                w.string(entry.getKey());
+                w.varInt(classIds.get(entry.getValue()));
+            }
+
+            w.varInt(excs.size());
+            for (ExcData excData : excs) {
+                w.string(excData.getSrgClassOwner());
+                w.string(excData.getSrgMethodName());
+                w.string(excData.getDescriptor());
+                w.stringArray(excData.getExceptions());
+                w.stringArray(excData.getParameters());
+                w.stringArray(excData.getParamTypes());
+            }
+            w.varInt(exc.srgMethodName2ExcData.size());
+            for (Entry<String, ExcData> entry : exc.srgMethodName2ExcData.entrySet()) {
+                w.string(entry.getKey());
+                w.varInt(excIds.get(entry.getValue()));
+            }
+            w.varInt(exc.srgParamName2ExcData.size());
+            for (Entry<String, ExcData> entry : exc.srgParamName2ExcData.entrySet()) {
+                w.string(entry.getKey());
+                w.varInt(excIds.get(entry.getValue()));
+            }
+
+            // CSV rows
+            Map<CsvData, Integer> fieldRowIds = writeCsvRows(w, csvFieldData);
+            Map<CsvData, Integer> methodRowIds = writeCsvRows(w, csvMethodData);
+
+            Map<ParamCsvData, Integer> paramRowIds = new IdentityHashMap<>();
+            w.string(csvParamData.getHeaderLine());
+            w.varInt(csvParamData.getCsvData().size());
+            for (ParamCsvData paramData : csvParamData.getCsvData()) {
+                paramRowIds.put(paramData, paramRowIds.size());
+                w.string(paramData.getSrgName());
+                w.string(paramData.getMcpName());
+                w.signedVarInt(paramData.getSide());
+            }
+
+            // Links
+            w.varInt(srgMethodData2CsvData.size());
+            for (Entry<MethodSrgData, CsvData> entry : srgMethodData2CsvData.entrySet()) {
+                w.varInt(methodIds.get(entry.getKey()));
+                w.varInt(methodRowIds.get(entry.getValue()));
+            }
+            w.varInt(srgFieldData2CsvData.size());
+            for (Entry<FieldSrgData, CsvData> entry : srgFieldData2CsvData.entrySet()) {
+                w.varInt(fieldIds.get(entry.getKey()));
+                w.varInt(fieldRowIds.get(entry.getValue()));
+            }
+            w.varInt(excData2MapParamCsvData.size());
+            for (Entry<ExcData, Map<String, ParamCsvData>> entry : excData2MapParamCsvData.entrySet()) {
+                w.varInt(excIds.get(entry.getKey()));
+                w.varInt(entry.getValue().size());
+                for (ParamCsvData paramData : entry.getValue().values())
+                    w.varInt(paramRowIds.get(paramData));
+            }
+
+            Buffer header = new Buffer();
+            header.fixedInt(MAGIC);
+            header.fixedInt(FORMAT_VERSION);
+            header.utf8(key);
+            header.varInt(w.strings.size());
+            for (String str : w.strings)
+                header.utf8(str);
+
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                out.write(header.bytes, 0, header.size);
+                out.write(w.bytes, 0, w.size);
+            }
+
+            if (file.exists() && !file.delete())
+                System.out.println("Failed to delete old mapping snapshot!");
+            if (!tmp.renameTo(file))
+                System.out.println("Failed to rename mapping snapshot!");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Unable to write mapping snapshot " + file + ": " + e);
+            if (tmp.exists() && !tmp.delete())
+                System.out.println("Failed to delete temporary mapping snapshot!");
+        }
+    }
+
+    private static <T> void addId(Map<T, Integer> ids, List<T> list, T o) {
+        if (!ids.containsKey(o)) {
+            ids.put(o, list.size());
+            list.add(o);
+        }
+    }
+
+    private static CsvData[] readCsvRows(Reader in, String[] strings, CsvFile csvFile) {
+        CsvData[] rows = new CsvData[in.varInt()];
+        for (int i = 0; i < rows.length; i++) {
+            String srgName = strings[in.varInt()];
+            String mcpName = strings[in.varInt()];
+            int side = in.signedVarInt();
+            String comment = strings[in.varInt()];
+            rows[i] = new CsvData(srgName, mcpName, side, comment, in.varInt() != 0);
+            csvFile.putCsvData(rows[i]);
+        }
+        return rows;
+    }
+
+    private static Map<CsvData, Integer> writeCsvRows(Writer w, CsvFile csvFile) {
+        Map<CsvData, Integer> rowIds = new IdentityHashMap<>();
+        w.string(csvFile.getHeaderLine());
+        w.varInt(csvFile.getCsvData().size());
+        for (CsvData csvData : csvFile.getCsvData()) {
+            rowIds.put(csvData, rowIds.size());
+            w.string(csvData.getSrgName());
+            w.string(csvData.getMcpName());
+            w.signedVarInt(csvData.getSide());
+            w.string(csvData.getComment());
+            w.varInt(csvData.needsQuoted() ? 1 : 0);
+        }
+        return rowIds;
+    }
+
+    /**
+     * Growable byte array with the varint encoding used throughout the snapshot.
+     */
+    private static class Buffer {
+        byte[] bytes = new byte[1 << 16];
+        int size;
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+
+        void fixedInt(int v) {
+            ensure(4);
+            bytes[size++] = (byte) (v >>> 24);
+            bytes[size++] = (byte) (v >>> 16);
+            bytes[size++] = (byte) (v >>> 8);
+            bytes[size++] = (byte) v;
+        }
+
+        void varInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+
+        /**
+         * Writes a value that may be -1.
+         */
+        void optVarInt(int v) {
+            varInt(v + 1);
+        }
+
+        void signedVarInt(int v) {
+            varInt((v << 1) ^ (v >> 31));
+        }
+
+        void utf8(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            varInt(b.length);
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+    }
+
+    /**
+     * Accumulates the body in memory while assigning string table ids, since the table has to be written first.
+     */
+    private static class Writer extends Buffer {
+        final List<String> strings = new ArrayList<>();
+        final Map<String, Integer> stringIds = new HashMap<>();
+
+        private int id(String s) {
+            Integer id = stringIds.get(s);
+            if (id == null) {
+                id = strings.size();
+                stringIds.put(s, id);
+                strings.add(s);
+            }
+            return id;
+        }
+
+        void string(String s) {
+            varInt(id(s));
+        }
+
+        void nullableString(String s) {
+            optVarInt(s == null ? -1 : id(s));
+        }
+
+        void stringArray(String[] array) {
+            varInt(array.length);
+            for (String s : array)
+                string(s);
+        }
+    }
+
+    private static class Reader {
+        private final byte[] bytes;
+        private int pos;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int fixedInt() {
+            int v = ((bytes[pos] & 0xFF) << 24) | ((bytes[pos + 1] & 0xFF) << 16) | ((bytes[pos + 2] & 0xFF) << 8) | (bytes[pos + 3] & 0xFF);
+            pos += 4;
+            return v;
+        }
+
+        int varInt() {
+            int v = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[pos++];
+                v |= (b & 0x7F) << shift;
+                if (b >= 0)
+                    return v;
+            }
+        }
+
+        int optVarInt() {
+            return varInt() - 1;
+        }
+
+        int signedVarInt() {
+            int v = varInt();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        String utf8() {
+            int len = varInt();
+            String s = new String(bytes, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return s;
+        }
+
+        String[] stringArray(String[] strings) {
+            String[] array = new String[varInt()];
+            for (int i = 0; i < array.length; i++)
+                array[i] = strings[varInt()];
+            return array;
+        }
+    }
+}
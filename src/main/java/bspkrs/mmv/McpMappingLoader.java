@@ -18,115 +18,386 @@ package bspkrs.mmv;
 
 import bspkrs.mmv.McpBotCommand.MemberType;
 import bspkrs.mmv.gui.MappingGui;
+import bspkrs.mmv.gui.TableColumnAdjuster;
 import immibis.bon.IProgressListener;
 
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableModel;
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.DigestException;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class McpMappingLoader {
+    /**
+     * Where downloaded zips, their digests and the version list are cached.
+     */
+    public static final File BASE_DIR = new File(new File(System.getProperty("user.home")), ".cache/MCPMappingViewer");
+    private static final String SNAPSHOT_FILE_NAME = "mappings.snapshot";
+    // Heap kept per entry, including its strings and map entries; calibrated against a 1.12 mapping set
+    private static final long CLASS_BYTES = 600, MEMBER_BYTES = 380, PARAM_BYTES = 120, CSV_ROW_BYTES = 140;
+    private static final ThreadFactory LOADER_THREAD_FACTORY = new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
 
-    public final Map<MethodSrgData, CsvData> srgMethodData2CsvData = new TreeMap<>();
-    public final Map<FieldSrgData, CsvData> srgFieldData2CsvData = new TreeMap<>();
-    public final Map<ExcData, Map<String, ParamCsvData>> excData2MapParamCsvData = new TreeMap<>();
-    private final File baseDir = new File(new File(System.getProperty("user.home")), ".cache/MCPMappingViewer");
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "MMV Loader " + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    };
+    // SRG/EXC data by {mc_ver} directory, shared by every loaded mapping version of that Minecraft version
+    private static final Map<String, WeakReference<SrgLayer>> srgLayers = new HashMap<>();
+
+    public final Map<MethodSrgData, CsvData> srgMethodData2CsvData = new HashMap<>();
+    public final Map<FieldSrgData, CsvData> srgFieldData2CsvData = new HashMap<>();
+    public final Map<ExcData, Map<String, ParamCsvData>> excData2MapParamCsvData = new HashMap<>();
     private final File mappingDir;
-    private final File srgFile;
-    private final File excFile;
-    private final File staticMethodsFile;
     private final MappingGui parentGui;
     private final Map<String, McpBotCommand> commandMap = new TreeMap<>();                                                                // srgName -> McpBotCommand
+    // Held while the CSV data is edited, written out or searched (one class at a time), so the search and journal threads never
+    // see an edit half done
+    private final Object editLock = new Object();
+    private final Object searchIndexLock = new Object();
+    private SrgLayer srgLayer; // keeps the shared entry alive for as long as this loader is
     private SrgFile srgFileData;
     private ExcFile excFileData;
     private CsvFile csvFieldData, csvMethodData;
     private ParamCsvFile csvParamData;
+    private ClassModel classModel;
+    private SearchIndex searchIndex;
+    private Set<ClassSrgData> editedDuringIndexBuild;
+    private EditJournal editJournal;
+    // The last search, kept so that a query containing it only has to re-check the classes it matched
+    private String lastSearchInput;
+    private Set<ClassSrgData> lastSearchResults;
+    private int searchEdits, lastSearchEdits;
     public McpMappingLoader(MappingGui parentGui, String mappingString, IProgressListener progress) throws IOException, CantLoadMCPMappingException, NoSuchAlgorithmException, DigestException {
-        progress.setMax(6);
-        progress.set(0);
+        this(parentGui, mappingString, CachePolicy.DEFAULT, progress);
+    }
+
+    /**
+     * @param cachePolicy when zips cached under {@link #BASE_DIR} are used without checking them against the server
+     */
+    public McpMappingLoader(MappingGui parentGui, String mappingString, final CachePolicy cachePolicy, IProgressListener progress) throws IOException, CantLoadMCPMappingException, NoSuchAlgorithmException, DigestException {
         this.parentGui = parentGui;
 
         // mappingString: <mc>_<channel>_<ver>, eg, 1.8_snapshot_20151118
-        String[] tokens = mappingString.split("_");
+        final String[] tokens = mappingString.split("_");
         if (tokens.length < 3)
             throw new CantLoadMCPMappingException("Invalid mapping string specified.");
 
-        boolean isNew = tokens[0].compareTo("1.13") >= 0;
+        final boolean isNew = tokens[0].compareTo("1.13") >= 0;
         final String newBaseSrgUrl = "https://files.minecraftforge.net/maven/de/oceanlabs/mcp/mcp_config/{mc_ver}/mcp_config-{mc_ver}.zip";
         final String oldBaseSrgUrl = "http://export.mcpbot.bspk.rs/mcp/{mc_ver}/mcp-{mc_ver}-srg.zip";
         final String baseSrgUrl = isNew ? newBaseSrgUrl : oldBaseSrgUrl;
-        final String srgFileName = isNew ? "config/joined.tsrg" : "joined.srg";
-        final String excFileName = isNew ? "config/exceptions.txt" : "joined.exc";
-        final String staticMethodsFileName = isNew ? "config/static_methods.txt" : "static_methods.txt";
 
-        progress.set(0, "Fetching SRG data");
         final String baseSrgDir = "{mc_ver}";
-        File srgDir = getSubDirForZip(tokens, baseSrgUrl, baseSrgDir);
-        progress.set(1, "Fetching CSV data");
-        String baseMappingDir = "{mc_ver}/{channel}_{map_ver}";
-        String baseMappingUrl = "http://export.mcpbot.bspk.rs/mcp_{channel}/{map_ver}-{mc_ver}/mcp_{channel}-{map_ver}-{mc_ver}.zip";
-        mappingDir = getSubDirForZip(tokens, baseMappingUrl, baseMappingDir);
+        final String baseMappingDir = "{mc_ver}/{channel}_{map_ver}";
+        final String baseMappingUrl = "http://export.mcpbot.bspk.rs/mcp_{channel}/{map_ver}-{mc_ver}/mcp_{channel}-{map_ver}-{mc_ver}.zip";
+
+        // the files read from the zips, which are kept as they are and read in place
+        final Set<String> srgEntries = new HashSet<>(Arrays.asList(srgFileName(isNew), excFileName(isNew), staticMethodsFileName(isNew)));
+        final Set<String> mappingEntries = new HashSet<>(Arrays.asList("fields.csv", "methods.csv", "params.csv"));
+
+        // The stages form a small dependency graph: both zips are fetched side by side, every text file is parsed on its own
+        // worker and each stage only waits on the stages whose output it consumes.
+        final LoadProgress loadProgress = new LoadProgress(progress, 11);
+        ExecutorService executor = Executors.newCachedThreadPool(LOADER_THREAD_FACTORY);
+        try {
+            loadProgress.stage("Fetching SRG and CSV data");
+            CompletableFuture<File> srgZipTask = submit(executor, new Callable<File>() {
+                @Override
+                public File call() throws Exception {
+                    return loadProgress.done(fetchZip(tokens, baseSrgUrl, baseSrgDir, srgEntries, cachePolicy, loadProgress), "Fetched SRG data");
+                }
+            });
+            CompletableFuture<File> mappingZipTask = submit(executor, new Callable<File>() {
+                @Override
+                public File call() throws Exception {
+                    return loadProgress.done(fetchZip(tokens, baseMappingUrl, baseMappingDir, mappingEntries, cachePolicy, loadProgress), "Fetched CSV data");
+                }
+            });
+
+            File srgZip = await(srgZipTask);
+            File mappingZip = await(mappingZipTask);
+            File srgDir = srgZip.getParentFile();
+            mappingDir = mappingZip.getParentFile();
+
+            File srgFile = new File(srgDir, srgFileName(isNew));
+            File excFile = new File(srgDir, excFileName(isNew));
+            File staticMethodsFile = new File(srgDir, staticMethodsFileName(isNew));
+
+            // A loose file is either left over from before the zips were kept or, for a CSV, has saved edits in it
+            File snapshotFile = new File(mappingDir, SNAPSHOT_FILE_NAME);
+            String snapshotKey = MappingSnapshot.buildKey(new File[]{srgDir, mappingDir}, srgZip, srgFile, excFile, staticMethodsFile, mappingZip,
+                    new File(mappingDir, "fields.csv"), new File(mappingDir, "methods.csv"), new File(mappingDir, "params.csv"));
+            String srgKey = MappingSnapshot.buildKey(new File[]{srgDir}, srgZip, srgFile, excFile, staticMethodsFile);
 
-        srgFile = new File(srgDir, srgFileName);
-        excFile = new File(srgDir, excFileName);
-        staticMethodsFile = new File(srgDir, staticMethodsFileName);
+            try (FileSystem srgZipFs = openZip(srgZip); FileSystem mappingZipFs = openZip(mappingZip)) {
+                Sources sources = new Sources(srgDir, srgZipFs, mappingDir, mappingZipFs, isNew);
 
-        if (!srgFile.exists())
-            throw new CantLoadMCPMappingException("Unable to find joined.srg. Your MCP conf folder may be corrupt.");
+                if (!Files.exists(sources.srg))
+                    throw new CantLoadMCPMappingException("Unable to find joined.srg. Your MCP conf folder may be corrupt.");
 
-        if (!excFile.exists())
-            throw new CantLoadMCPMappingException("Unable to find joined.exc. Your MCP conf folder may be corrupt.");
+                if (!Files.exists(sources.exc))
+                    throw new CantLoadMCPMappingException("Unable to find joined.exc. Your MCP conf folder may be corrupt.");
 
-        if (!staticMethodsFile.exists())
-            throw new CantLoadMCPMappingException("Unable to find static_methods.txt. Your MCP conf folder may be corrupt.");
+                if (!Files.exists(sources.staticMethods))
+                    throw new CantLoadMCPMappingException("Unable to find static_methods.txt. Your MCP conf folder may be corrupt.");
 
-        progress.set(2, "Loading CSV data");
-        loadCsvMapping();
-        progress.set(3, "Loading SRG data");
-        loadSrgMapping(isNew);
-        progress.set(4, "Linking SRG data with CSV data");
-        linkSrgDataToCsvData();
-        progress.set(5, "Linking EXC data with CSV data");
-        linkExcDataToSetParamCsvData();
+                loadData(executor, isNew, sources, srgDir, srgKey, snapshotFile, snapshotKey, loadProgress);
+            }
+
+            // The snapshot reflects the CSVs only, so edits made since the last compaction are applied on top of either source
+            openEditJournal();
+            loadProgress.finish();
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
-    private File getSubDirForZip(String[] tokens, String baseZipUrl, String baseSubDir) throws CantLoadMCPMappingException, NoSuchAlgorithmException, DigestException, IOException {
-        if (!baseDir.exists() && !baseDir.mkdirs())
+    /**
+     * Loads mappings already extracted to {@code srgDir} and {@code mappingDir} without fetching anything and without the
+     * snapshot, so the text files are always parsed. The benchmarks use this to run offline against generated data.
+     */
+    McpMappingLoader(File srgDir, File mappingDir, boolean isNew, IProgressListener progress) throws IOException, CantLoadMCPMappingException, NoSuchAlgorithmException, DigestException {
+        this.parentGui = null;
+        this.mappingDir = mappingDir;
+
+        LoadProgress loadProgress = new LoadProgress(progress, 11);
+        ExecutorService executor = Executors.newCachedThreadPool(LOADER_THREAD_FACTORY);
+        try {
+            loadProgress.done(null, "Loading mapping data");
+            loadMappings(executor, isNew, new Sources(srgDir, null, mappingDir, null, isNew), null, loadProgress);
+            loadProgress.finish();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String srgFileName(boolean isNew) {
+        return isNew ? "config/joined.tsrg" : "joined.srg";
+    }
+
+    private static String excFileName(boolean isNew) {
+        return isNew ? "config/exceptions.txt" : "joined.exc";
+    }
+
+    private static String staticMethodsFileName(boolean isNew) {
+        return isNew ? "config/static_methods.txt" : "static_methods.txt";
+    }
+
+    private void loadData(ExecutorService executor, boolean isNew, Sources sources, File srgDir, String srgKey, File snapshotFile, String snapshotKey,
+                          LoadProgress loadProgress) throws IOException, CantLoadMCPMappingException, NoSuchAlgorithmException, DigestException {
+        // Another version of the same Minecraft version already holds the SRG/EXC data, so only its CSVs are left to parse
+        srgLayer = getSrgLayer(srgDir, srgKey);
+        if (srgLayer != null) {
+            loadProgress.stage("Loading CSV data");
+            loadMappings(executor, isNew, sources, srgLayer, loadProgress);
+            return;
+        }
+
+        loadProgress.stage("Loading mapping snapshot");
+        if (!loadSnapshot(snapshotFile, snapshotKey)) {
+            loadProgress.done(null, "Loading mapping data");
+
+            loadMappings(executor, isNew, sources, null, loadProgress);
+            MappingSnapshot.write(snapshotFile, snapshotKey, srgFileData, excFileData, csvFieldData, csvMethodData, csvParamData,
+                    srgMethodData2CsvData, srgFieldData2CsvData, excData2MapParamCsvData);
+        }
+
+        srgLayer = new SrgLayer(srgKey, srgFileData, excFileData);
+        putSrgLayer(srgDir, srgLayer);
+    }
+
+    private static FileSystem openZip(File zip) throws IOException {
+        return zip.exists() ? FileSystems.newFileSystem(zip.toPath(), (ClassLoader) null) : null;
+    }
+
+    private static synchronized SrgLayer getSrgLayer(File srgDir, String key) {
+        WeakReference<SrgLayer> ref = srgLayers.get(srgDir.getAbsolutePath());
+        SrgLayer layer = ref != null ? ref.get() : null;
+        return layer != null && layer.key.equals(key) ? layer : null;
+    }
+
+    private static synchronized void putSrgLayer(File srgDir, SrgLayer layer) {
+        srgLayers.put(srgDir.getAbsolutePath(), new WeakReference<>(layer));
+    }
+
+    /**
+     * Parses the five text files concurrently, then links them. SRG parsing needs the EXC and static method data, and each
+     * link step only needs its own inputs, so the two link steps run side by side as well. All parsers share one string pool, so
+     * a name repeated across members or files (an SRG name in both the SRG file and a CSV, say) is only stored once. Given a
+     * shared {@code srgLayer}, only the CSVs are parsed and linked against it.
+     */
+    private void loadMappings(ExecutorService executor, final boolean newFormat, final Sources sources, SrgLayer srgLayer, final LoadProgress loadProgress) throws IOException, CantLoadMCPMappingException, NoSuchAlgorithmException, DigestException {
+        final StringPool pool = new StringPool();
+        final CompletableFuture<ExcFile> excTask;
+        final CompletableFuture<SrgFile> srgTask;
+        if (srgLayer != null) {
+            excTask = CompletableFuture.completedFuture(srgLayer.excFileData);
+            srgTask = CompletableFuture.completedFuture(srgLayer.srgFileData);
+        } else {
+            final CompletableFuture<StaticMethodsFile> staticMethodsTask = submit(executor, new Callable<StaticMethodsFile>() {
+                @Override
+                public StaticMethodsFile call() throws Exception {
+                    return loadProgress.done(new StaticMethodsFile(sources.staticMethods, pool), "Loaded static method data");
+                }
+            });
+            excTask = submit(executor, new Callable<ExcFile>() {
+                @Override
+                public ExcFile call() throws Exception {
+                    return loadProgress.done(new ExcFile(sources.exc, pool), "Loaded EXC data");
+                }
+            });
+            srgTask = submit(executor, new Callable<SrgFile>() {
+                @Override
+                public SrgFile call() throws Exception {
+                    ExcFile exc = await(excTask);
+                    StaticMethodsFile staticMethods = await(staticMethodsTask);
+                    SrgFile srg = newFormat ? new TSrgFile(sources.srg, exc, staticMethods, pool) : new SrgFile(sources.srg, exc, staticMethods, pool);
+                    return loadProgress.done(srg, "Loaded SRG data");
+                }
+            });
+        }
+
+        final CompletableFuture<CsvFile> fieldsTask = submit(executor, new Callable<CsvFile>() {
+            @Override
+            public CsvFile call() throws Exception {
+                return loadProgress.done(new CsvFile(new File(mappingDir, "fields.csv"), sources.fields, pool), "Loaded field CSV data");
+            }
+        });
+        final CompletableFuture<CsvFile> methodsTask = submit(executor, new Callable<CsvFile>() {
+            @Override
+            public CsvFile call() throws Exception {
+                return loadProgress.done(new CsvFile(new File(mappingDir, "methods.csv"), sources.methods, pool), "Loaded method CSV data");
+            }
+        });
+        final CompletableFuture<ParamCsvFile> paramsTask = submit(executor, new Callable<ParamCsvFile>() {
+            @Override
+            public ParamCsvFile call() throws Exception {
+                return loadProgress.done(new ParamCsvFile(new File(mappingDir, "params.csv"), sources.params, pool), "Loaded param CSV data");
+            }
+        });
+
+        // Each link step fills its own map, so they can safely run at the same time.
+        CompletableFuture<Void> linkSrgTask = submit(executor, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                linkSrgDataToCsvData(await(srgTask), await(fieldsTask), await(methodsTask));
+                return loadProgress.done(null, "Linked SRG data with CSV data");
+            }
+        });
+        CompletableFuture<Void> linkExcTask = submit(executor, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                await(srgTask); // SRG parsing fills in the EXC data of methods missing from the EXC file
+                linkExcDataToSetParamCsvData(await(excTask), await(paramsTask));
+                return loadProgress.done(null, "Linked EXC data with CSV data");
+            }
+        });
+
+        await(linkSrgTask);
+        await(linkExcTask);
+
+        srgFileData = await(srgTask);
+        excFileData = await(excTask);
+        csvFieldData = await(fieldsTask);
+        csvMethodData = await(methodsTask);
+        csvParamData = await(paramsTask);
+    }
+
+    private static <T> CompletableFuture<T> submit(ExecutorService executor, final Callable<T> task) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete(task.call());
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Waits for a stage and rethrows its failure as the checked exception the stage originally threw.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException, CantLoadMCPMappingException, NoSuchAlgorithmException, DigestException {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof CantLoadMCPMappingException)
+                throw (CantLoadMCPMappingException) cause;
+            if (cause instanceof NoSuchAlgorithmException)
+                throw (NoSuchAlgorithmException) cause;
+            if (cause instanceof DigestException)
+                throw (DigestException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private File fetchZip(String[] tokens, String baseZipUrl, String baseSubDir, Set<String> entries, CachePolicy cachePolicy, LoadProgress loadProgress) throws CantLoadMCPMappingException, NoSuchAlgorithmException, DigestException, IOException {
+        // Both zips are fetched at once, so another worker may create the folders between the check and mkdirs()
+        if (!BASE_DIR.mkdirs() && !BASE_DIR.isDirectory())
             throw new CantLoadMCPMappingException("Application data folder does not exist and cannot be created.");
 
-        File subDir = new File(baseDir, replaceTokens(baseSubDir, tokens));
-        if (!subDir.exists() && !subDir.mkdirs())
+        File subDir = new File(BASE_DIR, replaceTokens(baseSubDir, tokens));
+        if (!subDir.mkdirs() && !subDir.isDirectory())
             throw new CantLoadMCPMappingException("Data folder does not exist and cannot be created.");
 
-        RemoteZipHandler rzh = new RemoteZipHandler(replaceTokens(baseZipUrl, tokens), subDir, "SHA1");
+        RemoteZipHandler rzh = new RemoteZipHandler(replaceTokens(baseZipUrl, tokens), subDir, "SHA1", entries, true, cachePolicy, loadProgress.download());
+        if (cachePolicy.isOffline() && !rzh.isCached())
+            throw new CantLoadMCPMappingException(rzh.getZipFile().getName() + " has not been downloaded yet and cannot be while offline.");
         rzh.checkRemoteZip();
 
-        return subDir;
+        return rzh.getZipFile();
     }
 
     private String replaceTokens(String s, String[] tokens) {
         return s.replace("{mc_ver}", tokens[0]).replace("{channel}", tokens[1]).replace("{map_ver}", tokens[2]);
     }
 
-    private void loadSrgMapping(boolean newFormat) throws IOException {
-        StaticMethodsFile staticMethods = new StaticMethodsFile(staticMethodsFile);
-        excFileData = new ExcFile(excFile);
-        srgFileData = newFormat
-                ? new TSrgFile(srgFile, excFileData, staticMethods)
-                : new SrgFile(srgFile, excFileData, staticMethods);
-    }
+    private boolean loadSnapshot(File snapshotFile, String snapshotKey) {
+        MappingSnapshot snapshot = MappingSnapshot.read(snapshotFile, snapshotKey,
+                new File(mappingDir, "fields.csv"), new File(mappingDir, "methods.csv"), new File(mappingDir, "params.csv"),
+                srgMethodData2CsvData, srgFieldData2CsvData, excData2MapParamCsvData);
+
+        if (snapshot == null)
+            return false;
 
-    private void loadCsvMapping() throws IOException {
-        csvFieldData = new CsvFile(new File(mappingDir, "fields.csv"));
-        csvMethodData = new CsvFile(new File(mappingDir, "methods.csv"));
-        csvParamData = new ParamCsvFile(new File(mappingDir, "params.csv"));
+        srgFileData = snapshot.srgFileData;
+        excFileData = snapshot.excFileData;
+        csvFieldData = snapshot.csvFieldData;
+        csvMethodData = snapshot.csvMethodData;
+        csvParamData = snapshot.csvParamData;
+        return true;
     }
 
-    private void linkSrgDataToCsvData() {
+    private void linkSrgDataToCsvData(SrgFile srgFileData, CsvFile csvFieldData, CsvFile csvMethodData) {
         for (Entry<String, MethodSrgData> methodData : srgFileData.srgMethodName2MethodData.entrySet()) {
             if (!srgMethodData2CsvData.containsKey(methodData.getValue()) && csvMethodData.hasCsvDataForKey(methodData.getKey())) {
                 srgMethodData2CsvData.put(methodData.getValue(), csvMethodData.getCsvDataForKey(methodData.getKey()));
@@ -142,7 +413,7 @@ public class McpMappingLoader {
         }
     }
 
-    private void linkExcDataToSetParamCsvData() {
+    private void linkExcDataToSetParamCsvData(ExcFile excFileData, ParamCsvFile csvParamData) {
         for (Entry<String, ExcData> excData : excFileData.srgMethodName2ExcData.entrySet()) {
             if (!excData2MapParamCsvData.containsKey(excData.getValue()) && excData.getValue().getParameters().length > 0) {
                 TreeMap<String, ParamCsvData> params = new TreeMap<>();
@@ -181,6 +452,170 @@ public class McpMappingLoader {
         return csvData;
     }
 
+    private void openEditJournal() throws IOException {
+        editJournal = new EditJournal(new File(mappingDir, EditJournal.FILE_NAME));
+        editJournal.replay(new EditJournal.Replay() {
+            @Override
+            public void edit(MemberType type, String srgName, String mcpName, String comment) {
+                replayEdit(type, srgName, mcpName, comment);
+            }
+        });
+
+        if (editJournal.length() > EditJournal.COMPACT_THRESHOLD)
+            compactEdits();
+    }
+
+    /**
+     * Applies a journalled edit to the mapping data. Unlike an edit in the tables it queues no bot command, as those were
+     * already offered when the edit was made.
+     */
+    private void replayEdit(MemberType type, String srgName, String mcpName, String comment) {
+        switch (type) {
+            case METHOD: {
+                MethodSrgData methodData = srgFileData.srgMethodName2MethodData.get(srgName);
+                if (methodData != null)
+                    csvMethodData.updateCsvDataForKey(srgName, replayMemberEdit(srgMethodData2CsvData, methodData, mcpName, comment));
+                break;
+            }
+            case FIELD: {
+                FieldSrgData fieldData = srgFileData.srgFieldName2FieldData.get(srgName);
+                if (fieldData != null)
+                    csvFieldData.updateCsvDataForKey(srgName, replayMemberEdit(srgFieldData2CsvData, fieldData, mcpName, comment));
+                break;
+            }
+            case PARAM: {
+                ExcData excData = excFileData.srgParamName2ExcData.get(srgName);
+                if (excData == null)
+                    break;
+
+                ParamCsvData csvData = csvParamData.getCsvDataForKey(srgName);
+                if (csvData != null)
+                    csvData.setMcpName(mcpName);
+                else {
+                    csvData = new ParamCsvData(srgName, mcpName, 2);
+                    if (!excData2MapParamCsvData.containsKey(excData))
+                        excData2MapParamCsvData.put(excData, new TreeMap<String, ParamCsvData>());
+                    excData2MapParamCsvData.get(excData).put(srgName, csvData);
+                }
+                csvParamData.updateCsvDataForKey(srgName, csvData);
+                break;
+            }
+        }
+    }
+
+    private static <T extends MemberSrgData> CsvData replayMemberEdit(Map<T, CsvData> memberData2CsvData, T memberData, String mcpName, String comment) {
+        CsvData csvData = memberData2CsvData.get(memberData);
+        if (csvData != null)
+            csvData.setMcpName(mcpName).setComment(comment);
+        else {
+            csvData = new CsvData(memberData.getSrgName(), mcpName, 2, comment, comment.indexOf(',') != -1);
+            memberData2CsvData.put(memberData, csvData);
+        }
+        return csvData;
+    }
+
+    private void recordEdit(MemberType type, String csvRow) {
+        if (editJournal == null)
+            return;
+
+        try {
+            editJournal.append(type, csvRow);
+            if (editJournal.length() > EditJournal.COMPACT_THRESHOLD)
+                compactEditsLater();
+        } catch (IOException e) {
+            System.err.println("Unable to record edit to " + srgNameOf(csvRow) + ": " + e);
+        }
+    }
+
+    private static String srgNameOf(String csvRow) {
+        int comma = csvRow.indexOf(',');
+        return comma == -1 ? csvRow : csvRow.substring(0, comma);
+    }
+
+    /**
+     * Writes all edits into the CSV files and empties the edit journal. Edits made meanwhile wait until it is done.
+     */
+    public void compactEdits() throws IOException {
+        synchronized (editLock) {
+            if (editJournal == null)
+                return;
+
+            editJournal.sync();
+            csvMethodData.writeToFile();
+            csvFieldData.writeToFile();
+            csvParamData.writeToFile();
+            editJournal.clear();
+        }
+    }
+
+    /**
+     * Like {@link #compactEdits()}, but on the journal thread, so the caller (usually the EDT) does not wait for the CSVs to be
+     * rewritten.
+     */
+    public void compactEditsLater() {
+        if (editJournal == null)
+            return;
+
+        editJournal.compactLater(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                compactEdits();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Whether there are edits that have not been written into the CSV files yet.
+     */
+    public boolean hasPendingEdits() {
+        return editJournal != null && editJournal.length() > 0;
+    }
+
+    /**
+     * Makes sure every edit made so far is on disk. Call this before the loader is discarded.
+     */
+    public void closeEditJournal() {
+        if (editJournal == null)
+            return;
+
+        try {
+            editJournal.close();
+        } catch (IOException e) {
+            System.err.println("Unable to close edit journal: " + e);
+        }
+    }
+
+    /**
+     * Roughly how many bytes of heap this loader keeps alive, worked out from the number of entries it holds. Good enough to
+     * compare loaders and to budget a cache of them, not an exact measurement. Includes the {@link #estimateSrgSize() SRG data},
+     * which may be shared with other loaders.
+     */
+    public long estimateSize() {
+        long csvRows = csvMethodData.getCsvData().size() + csvFieldData.getCsvData().size() + csvParamData.getCsvData().size();
+
+        return estimateSrgSize() + csvRows * CSV_ROW_BYTES;
+    }
+
+    /**
+     * The part of {@link #estimateSize()} taken by the SRG/EXC data, which every loaded version of the same Minecraft version
+     * shares; see {@link #getSrgFileData()}.
+     */
+    public long estimateSrgSize() {
+        long classes = srgFileData.srgClassName2ClassData.size();
+        long members = srgFileData.srgMethodName2MethodData.size() + srgFileData.srgFieldName2FieldData.size();
+        long params = excFileData.srgParamName2ExcData.size();
+
+        return classes * CLASS_BYTES + members * MEMBER_BYTES + params * PARAM_BYTES;
+    }
+
+    /**
+     * The SRG data of this version. Loaders of the same Minecraft version return the same instance while they are alive.
+     */
+    public SrgFile getSrgFileData() {
+        return srgFileData;
+    }
+
     public String getBotCommands(boolean clear) {
         StringBuilder r = new StringBuilder();
 
@@ -206,6 +641,82 @@ public class McpMappingLoader {
             progress.set(0);
         }
 
+        // The search runs on its own thread while the table edits change the CSV data on the EDT. Each class is checked under
+        // the edit lock, so an edit waits for one class at most; one made meanwhile keeps these results from being refined.
+        int edits = getSearchEdits();
+        Set<ClassSrgData> within = getRefinableSearchResults(input, edits);
+        Set<ClassSrgData> results;
+        if (input.length() >= SearchIndex.GRAM)
+            results = getSearchIndex().search(input, within);
+        else if (within != null)
+            results = getSearchIndex().filter(within, input);
+        else
+            results = scanForSearchResults(input, progress);
+
+        setLastSearchResults(input, results, edits);
+
+        if (progress != null)
+            progress.set(3);
+
+        return new ClassModel(results);
+    }
+
+    /**
+     * Builds the index on first use. The build does not hold the loader's monitor, so edits made meanwhile are not held up;
+     * the classes they touch are collected and marked once the index is done.
+     */
+    private SearchIndex getSearchIndex() {
+        synchronized (searchIndexLock) {
+            synchronized (this) {
+                if (searchIndex != null)
+                    return searchIndex;
+                editedDuringIndexBuild = new HashSet<>();
+            }
+
+            SearchIndex index = new SearchIndex(srgFileData, srgMethodData2CsvData, srgFieldData2CsvData, editLock);
+
+            synchronized (this) {
+                for (ClassSrgData classData : editedDuringIndexBuild)
+                    index.markEdited(classData);
+                editedDuringIndexBuild = null;
+                searchIndex = index;
+            }
+            return index;
+        }
+    }
+
+    private synchronized void markSearchIndexEdited(ClassSrgData classData) {
+        searchEdits++;
+        if (searchIndex != null)
+            searchIndex.markEdited(classData);
+        else if (editedDuringIndexBuild != null)
+            editedDuringIndexBuild.add(classData);
+    }
+
+    private synchronized int getSearchEdits() {
+        return searchEdits;
+    }
+
+    /**
+     * Every class matching {@code input} also matches any substring of it, so when {@code input} contains the previous query
+     * and nothing was edited in between, only the previous results need to be checked again.
+     */
+    private synchronized Set<ClassSrgData> getRefinableSearchResults(String input, int edits) {
+        if (lastSearchInput != null && lastSearchEdits == edits && edits == searchEdits && input.contains(lastSearchInput))
+            return lastSearchResults;
+        return null;
+    }
+
+    /**
+     * @param edits the edit count when the search started, so that an edit made during it rules these results out for refining
+     */
+    private synchronized void setLastSearchResults(String input, Set<ClassSrgData> results, int edits) {
+        lastSearchInput = input;
+        lastSearchResults = Collections.unmodifiableSet(results);
+        lastSearchEdits = edits;
+    }
+
+    private Set<ClassSrgData> scanForSearchResults(String input, IProgressListener progress) {
         Set<ClassSrgData> results = new TreeSet<>();
 
         // Search Class objects
@@ -213,17 +724,22 @@ public class McpMappingLoader {
             if (classData.contains(input))
                 results.add(classData);
 
+        SearchIndex.checkCancelled();
+
         if (progress != null)
             progress.set(1);
 
         // Search Methods
         for (Entry<ClassSrgData, Set<MethodSrgData>> entry : srgFileData.class2MethodDataSet.entrySet()) {
+            SearchIndex.checkCancelled();
             if (!results.contains(entry.getKey())) {
-                for (MethodSrgData methodData : entry.getValue()) {
-                    CsvData csv = srgMethodData2CsvData.get(methodData);
-                    if (methodData.contains(input) || csv != null && csv.contains(input)) {
-                        results.add(entry.getKey());
-                        break;
+                synchronized (editLock) {
+                    for (MethodSrgData methodData : entry.getValue()) {
+                        CsvData csv = srgMethodData2CsvData.get(methodData);
+                        if (methodData.contains(input) || csv != null && csv.contains(input)) {
+                            results.add(entry.getKey());
+                            break;
+                        }
                     }
                 }
             }
@@ -234,22 +750,28 @@ public class McpMappingLoader {
 
         // Search Fields
         for (Entry<ClassSrgData, Set<FieldSrgData>> entry : srgFileData.class2FieldDataSet.entrySet()) {
+            SearchIndex.checkCancelled();
             if (!results.contains(entry.getKey())) {
-                for (FieldSrgData fieldData : entry.getValue()) {
-                    CsvData csv = srgFieldData2CsvData.get(fieldData);
-                    if (fieldData.contains(input) || csv != null && csv.contains(input)) {
-                        results.add(entry.getKey());
-                        break;
+                synchronized (editLock) {
+                    for (FieldSrgData fieldData : entry.getValue()) {
+                        CsvData csv = srgFieldData2CsvData.get(fieldData);
+                        if (fieldData.contains(input) || csv != null && csv.contains(input)) {
+                            results.add(entry.getKey());
+                            break;
+                        }
                     }
                 }
             }
         }
 
-        return new ClassModel(results);
+        return results;
     }
 
-    public TableModel getClassModel() {
-        return new ClassModel(srgFileData.srgClassName2ClassData.values());
+    public synchronized TableModel getClassModel() {
+        // The class list never changes once loaded, so every caller can share one model
+        if (classModel == null)
+            classModel = new ClassModel(srgFileData.getSortedClasses());
+        return classModel;
     }
 
     public TableModel getMethodModel(String srgPkgAndOwner) {
@@ -277,32 +799,30 @@ public class McpMappingLoader {
         }
     }
 
+    /**
+     * Base for the table models below. Cells are read from the mapping data on demand; only rows the user has typed into keep
+     * a copy of their values, so building a model costs no more than the array of rows it shows.
+     */
     @SuppressWarnings("rawtypes")
-    public static class ClassModel extends AbstractTableModel {
+    abstract static class MappingTableModel extends AbstractTableModel implements TableColumnAdjuster.LongestValueModel {
         private static final long serialVersionUID = 1L;
-        public final String[] columnNames = {"Pkg name", "SRG name", "Obf name"};
-        private final Class[] columnTypes = {String.class, String.class, String.class};
-        private final boolean[] isColumnEditable = {false, false, false};
-        private final Object[][] data;
-
-        public ClassModel(Collection<ClassSrgData> map) {
-
-            data = new Object[map.size()][columnNames.length];
-
-            int i = 0;
-
-            for (ClassSrgData classData : map) {
-                data[i][0] = classData.getSrgPkgName();
-                data[i][1] = classData.getSrgName();
-                data[i][2] = classData.getObfName();
-                i++;
-            }
+        private final String[] columnNames;
+        private final Class[] columnTypes;
+        private final boolean[] isColumnEditable;
+        private final Map<Integer, Object[]> editedRows = new HashMap<>();
+        private int[] longestRows;
+
+        MappingTableModel(String[] columnNames, boolean[] isColumnEditable) {
+            this.columnNames = columnNames;
+            this.isColumnEditable = isColumnEditable;
+            this.columnTypes = new Class[columnNames.length];
+            Arrays.fill(columnTypes, String.class);
         }
 
-        @Override
-        public int getRowCount() {
-            return data.length;
-        }
+        /**
+         * Returns the current value of a cell from the mapping data.
+         */
+        protected abstract Object getDataAt(int rowIndex, int columnIndex);
 
         @Override
         public int getColumnCount() {
@@ -335,226 +855,219 @@ public class McpMappingLoader {
 
         @Override
         public Object getValueAt(int rowIndex, int columnIndex) {
-            return data[rowIndex][Math.min(columnIndex, data[rowIndex].length - 1)];
+            columnIndex = Math.min(columnIndex, columnNames.length - 1);
+            Object[] row = editedRows.get(rowIndex);
+            return row != null ? row[columnIndex] : getDataAt(rowIndex, columnIndex);
         }
-    }
-
-    @SuppressWarnings("rawtypes")
-    public class MethodModel extends AbstractTableModel {
-        private static final long serialVersionUID = 1L;
-        private final String[] columnNames = {"MCP Name", "SRG Name", "Obf Name", "SRG Descriptor", "Comment"};
-        private final Class[] columnTypes = {String.class, String.class, String.class, String.class, String.class};
-        private final boolean[] isColumnEditable = {true, false, false, false, true};
-        private final Object[][] data;
 
-        public MethodModel(Set<MethodSrgData> srgMethodSet) {
+        /**
+         * Stores a typed value and returns the row as the user now sees it. Edits that are not applied to the mapping data (a
+         * comment without an MCP name, say) stay visible this way.
+         */
+        protected Object[] editRow(Object aValue, int rowIndex, int columnIndex) {
+            Object[] row = editedRows.get(rowIndex);
+            if (row == null) {
+                row = new Object[columnNames.length];
+                for (int i = 0; i < row.length; i++)
+                    row[i] = getDataAt(rowIndex, i);
+                editedRows.put(rowIndex, row);
+            }
 
-            data = new Object[srgMethodSet.size()][columnNames.length];
+            row[columnIndex] = aValue;
 
-            int i = 0;
+            if (longestRows != null && length(aValue) > length(getValueAt(longestRows[columnIndex], columnIndex)))
+                longestRows[columnIndex] = rowIndex;
 
-            for (MethodSrgData methodData : srgMethodSet) {
-                CsvData csvData = srgMethodData2CsvData.get(methodData);
-                if (csvData != null) {
-                    data[i][0] = csvData.getMcpName();
-                    data[i][4] = csvData.getComment();
-                } else {
-                    data[i][0] = "";
-                    data[i][4] = "";
-                }
-                data[i][1] = methodData.getSrgName();
-                data[i][2] = methodData.getObfName();
-                data[i][3] = methodData.getSrgDescriptor();
+            fireTableCellUpdated(rowIndex, columnIndex);
+            return row;
+        }
 
-                i++;
+        @Override
+        public int getRowOfLongestValue(int column) {
+            if (longestRows == null) {
+                longestRows = new int[columnNames.length];
+                int[] lengths = new int[columnNames.length];
+                for (int row = 0; row < getRowCount(); row++)
+                    for (int i = 0; i < columnNames.length; i++) {
+                        int length = length(getValueAt(row, i));
+                        if (length > lengths[i]) {
+                            lengths[i] = length;
+                            longestRows[i] = row;
+                        }
+                    }
             }
+
+            return column >= 0 && column < longestRows.length ? longestRows[column] : -1;
         }
 
-        @Override
-        public int getRowCount() {
-            return data.length;
+        private static int length(Object value) {
+            return value != null ? value.toString().length() : 0;
         }
+    }
 
-        @Override
-        public int getColumnCount() {
-            return columnNames.length;
+    public static class ClassModel extends MappingTableModel {
+        private static final long serialVersionUID = 1L;
+        private final ClassSrgData[] data;
+
+        public ClassModel(Collection<ClassSrgData> map) {
+            this(map.toArray(new ClassSrgData[0]));
         }
 
-        @Override
-        public String getColumnName(int columnIndex) {
-            if (columnIndex < columnNames.length && columnIndex >= 0)
-                return columnNames[columnIndex];
+        ClassModel(ClassSrgData[] data) {
+            super(new String[]{"Pkg name", "SRG name", "Obf name"}, new boolean[]{false, false, false});
+            this.data = data;
+        }
 
-            return "";
+        @Override
+        public int getRowCount() {
+            return data.length;
         }
 
         @Override
-        public Class<?> getColumnClass(int columnIndex) {
-            if (columnIndex < columnTypes.length && columnIndex >= 0)
-                return columnTypes[columnIndex];
+        protected Object getDataAt(int rowIndex, int columnIndex) {
+            ClassSrgData classData = data[rowIndex];
+            switch (columnIndex) {
+                case 0:
+                    return classData.getSrgPkgName();
+                case 1:
+                    return classData.getSrgName();
+                default:
+                    return classData.getObfName();
+            }
+        }
+    }
 
-            return String.class;
+    public class MethodModel extends MappingTableModel {
+        private static final long serialVersionUID = 1L;
+        private final MethodSrgData[] data;
+
+        public MethodModel(Set<MethodSrgData> srgMethodSet) {
+            super(new String[]{"MCP Name", "SRG Name", "Obf Name", "SRG Descriptor", "Comment"}, new boolean[]{true, false, false, false, true});
+            data = srgMethodSet.toArray(new MethodSrgData[0]);
         }
 
         @Override
-        public boolean isCellEditable(int rowIndex, int columnIndex) {
-            if (columnIndex < isColumnEditable.length && columnIndex >= 0)
-                return isColumnEditable[columnIndex];
-
-            return false;
+        public int getRowCount() {
+            return data.length;
         }
 
         @Override
-        public Object getValueAt(int rowIndex, int columnIndex) {
-            return data[rowIndex][Math.min(columnIndex, data[rowIndex].length - 1)];
+        protected Object getDataAt(int rowIndex, int columnIndex) {
+            MethodSrgData methodData = data[rowIndex];
+            switch (columnIndex) {
+                case 0:
+                case 4:
+                    CsvData csvData = srgMethodData2CsvData.get(methodData);
+                    if (csvData == null)
+                        return "";
+                    return columnIndex == 0 ? csvData.getMcpName() : csvData.getComment();
+                case 1:
+                    return methodData.getSrgName();
+                case 2:
+                    return methodData.getObfName();
+                default:
+                    return methodData.getSrgDescriptor();
+            }
         }
 
         @Override
         public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
-            data[rowIndex][columnIndex] = aValue;
+            Object[] row = editRow(aValue, rowIndex, columnIndex);
 
-            if (columnIndex == 4 && aValue != null && (data[rowIndex][0] == null || data[rowIndex][0].toString().trim().isEmpty()))
+            if (columnIndex == 4 && aValue != null && (row[0] == null || row[0].toString().trim().isEmpty()))
                 return; // if only the comment has been set, don't bother adding a command
 
-            String srgName = (String) data[rowIndex][1];
-            String mcpName = (String) data[rowIndex][0];
-            String comment = (String) data[rowIndex][4];
+            String srgName = (String) row[1];
+            String mcpName = (String) row[0];
+            String comment = (String) row[4];
 
             if (mcpName.trim().isEmpty())
                 return;
 
-            CsvData result = processMemberDataEdit(MemberType.METHOD, srgFileData.srgMethodName2MethodData, srgMethodData2CsvData, srgName, mcpName, comment);
+            synchronized (editLock) {
+                CsvData result = processMemberDataEdit(MemberType.METHOD, srgFileData.srgMethodName2MethodData, srgMethodData2CsvData, srgName, mcpName, comment);
 
-            if (result != null) {
-                csvMethodData.updateCsvDataForKey(srgName, result);
-                srgMethodData2CsvData.put(srgFileData.srgMethodName2MethodData.get(srgName), result);
-                parentGui.setCsvFileEdited(true);
+                if (result != null) {
+                    csvMethodData.updateCsvDataForKey(srgName, result);
+                    srgMethodData2CsvData.put(srgFileData.srgMethodName2MethodData.get(srgName), result);
+                    recordEdit(MemberType.METHOD, result.toCsv());
+                    markSearchIndexEdited(srgFileData.srgMethodName2ClassData.get(srgName));
+                    parentGui.setCsvFileEdited(true);
+                }
             }
         }
     }
 
-    @SuppressWarnings("rawtypes")
-    public class ParamModel extends AbstractTableModel {
+    public class ParamModel extends MappingTableModel {
         private static final long serialVersionUID = 1L;
-        private final String[] columnNames = {"MCP Name", "SRG Name", "Type"};
-        private final Class[] columnTypes = {String.class, String.class, String.class};
-        private final boolean[] isColumnEditable = {true, false, false};
-        private final Object[][] data;
+        private final ExcData excData;
 
         public ParamModel(ExcData excData) {
-            data = new Object[excData.getParameters().length][columnNames.length];
-
-            for (int i = 0; i < excData.getParameters().length; i++) {
-                if (excData2MapParamCsvData.containsKey(excData) && excData2MapParamCsvData.get(excData).containsKey(excData.getParameters()[i]))
-                    data[i][0] = excData2MapParamCsvData.get(excData).get(excData.getParameters()[i]).getMcpName();
-                else
-                    data[i][0] = "";
-
-                data[i][1] = excData.getParameters()[i];
-                data[i][2] = excData.getParamTypes()[i];
-                //i++;
-            }
+            super(new String[]{"MCP Name", "SRG Name", "Type"}, new boolean[]{true, false, false});
+            this.excData = excData;
         }
 
         @Override
         public int getRowCount() {
-            return data.length;
-        }
-
-        @Override
-        public int getColumnCount() {
-            return columnNames.length;
-        }
-
-        @Override
-        public String getColumnName(int columnIndex) {
-            if (columnIndex < columnNames.length && columnIndex >= 0)
-                return columnNames[columnIndex];
-
-            return "";
-        }
-
-        @Override
-        public Class<?> getColumnClass(int columnIndex) {
-            if (columnIndex < columnTypes.length && columnIndex >= 0)
-                return columnTypes[columnIndex];
-
-            return String.class;
+            return excData.getParameters().length;
         }
 
         @Override
-        public boolean isCellEditable(int rowIndex, int columnIndex) {
-            if (columnIndex < isColumnEditable.length && columnIndex >= 0)
-                return isColumnEditable[columnIndex];
-
-            return false;
-        }
-
-        @Override
-        public Object getValueAt(int rowIndex, int columnIndex) {
-            return data[rowIndex][Math.min(columnIndex, data[rowIndex].length - 1)];
+        protected Object getDataAt(int rowIndex, int columnIndex) {
+            switch (columnIndex) {
+                case 0:
+                    Map<String, ParamCsvData> params = excData2MapParamCsvData.get(excData);
+                    ParamCsvData csvData = params != null ? params.get(excData.getParameters()[rowIndex]) : null;
+                    return csvData != null ? csvData.getMcpName() : "";
+                case 1:
+                    return excData.getParameters()[rowIndex];
+                default:
+                    return excData.getParamTypes()[rowIndex];
+            }
         }
 
         @Override
         public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
-            data[rowIndex][columnIndex] = aValue;
+            Object[] row = editRow(aValue, rowIndex, columnIndex);
 
-            String srgName = (String) data[rowIndex][1];
-            String mcpName = (String) data[rowIndex][0];
+            String srgName = (String) row[1];
+            String mcpName = (String) row[0];
 
             if (mcpName.trim().isEmpty())
                 return;
 
-            ExcData excData = excFileData.srgParamName2ExcData.get(srgName);
-            ParamCsvData csvData;
-            boolean isForced = csvParamData.hasCsvDataForKey(srgName);
-
-            if (isForced) {
-                csvData = csvParamData.getCsvDataForKey(srgName);
-                if (!mcpName.trim().equals(csvData.getMcpName()))
-                    csvData.setMcpName(mcpName.trim());
-                else
-                    return;
-            } else {
-                csvData = new ParamCsvData(srgName, mcpName, 2);
-                excData2MapParamCsvData.get(excData).put(srgName, csvData);
-            }
+            synchronized (editLock) {
+                ExcData excData = excFileData.srgParamName2ExcData.get(srgName);
+                ParamCsvData csvData;
+                boolean isForced = csvParamData.hasCsvDataForKey(srgName);
+
+                if (isForced) {
+                    csvData = csvParamData.getCsvDataForKey(srgName);
+                    if (!mcpName.trim().equals(csvData.getMcpName()))
+                        csvData.setMcpName(mcpName.trim());
+                    else
+                        return;
+                } else {
+                    csvData = new ParamCsvData(srgName, mcpName, 2);
+                    excData2MapParamCsvData.get(excData).put(srgName, csvData);
+                }
 
-            commandMap.put(srgName, McpBotCommand.getMcpBotCommand(MemberType.PARAM, isForced, csvData.getSrgName(), csvData.getMcpName(), ""));
+                commandMap.put(srgName, McpBotCommand.getMcpBotCommand(MemberType.PARAM, isForced, csvData.getSrgName(), csvData.getMcpName(), ""));
 
-            csvParamData.updateCsvDataForKey(srgName, csvData);
-            parentGui.setCsvFileEdited(true);
+                csvParamData.updateCsvDataForKey(srgName, csvData);
+                recordEdit(MemberType.PARAM, csvData.toCsv());
+                parentGui.setCsvFileEdited(true);
+            }
         }
     }
 
-    @SuppressWarnings("rawtypes")
-    public class FieldModel extends AbstractTableModel {
+    public class FieldModel extends MappingTableModel {
         private static final long serialVersionUID = 1L;
-        private final String[] columnNames = {"MCP Name", "SRG Name", "Obf Name", "Comment"};
-        private final Class[] columnTypes = {String.class, String.class, String.class, String.class};
-        private final boolean[] isColumnEditable = {true, false, false, true};
-        private final Object[][] data;
+        private final FieldSrgData[] data;
 
         public FieldModel(Set<FieldSrgData> srgFieldSet) {
-
-            data = new Object[srgFieldSet.size()][columnNames.length];
-
-            int i = 0;
-
-            for (FieldSrgData fieldData : srgFieldSet) {
-                CsvData csvData = srgFieldData2CsvData.get(fieldData);
-                if (csvData != null) {
-                    data[i][0] = csvData.getMcpName();
-                    data[i][3] = csvData.getComment();
-                } else {
-                    data[i][0] = "";
-                    data[i][3] = "";
-                }
-                data[i][1] = fieldData.getSrgName();
-                data[i][2] = fieldData.getObfName();
-
-                i++;
-            }
+            super(new String[]{"MCP Name", "SRG Name", "Obf Name", "Comment"}, new boolean[]{true, false, false, true});
+            data = srgFieldSet.toArray(new FieldSrgData[0]);
         }
 
         @Override
@@ -563,60 +1076,148 @@ public class McpMappingLoader {
         }
 
         @Override
-        public int getColumnCount() {
-            return columnNames.length;
+        protected Object getDataAt(int rowIndex, int columnIndex) {
+            FieldSrgData fieldData = data[rowIndex];
+            switch (columnIndex) {
+                case 0:
+                case 3:
+                    CsvData csvData = srgFieldData2CsvData.get(fieldData);
+                    if (csvData == null)
+                        return "";
+                    return columnIndex == 0 ? csvData.getMcpName() : csvData.getComment();
+                case 1:
+                    return fieldData.getSrgName();
+                default:
+                    return fieldData.getObfName();
+            }
         }
 
         @Override
-        public String getColumnName(int columnIndex) {
-            if (columnIndex < columnNames.length && columnIndex >= 0)
-                return columnNames[columnIndex];
+        public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
+            Object[] row = editRow(aValue, rowIndex, columnIndex);
 
-            return "";
+            if (columnIndex == 3 && aValue != null && (row[0] == null || row[0].toString().trim().isEmpty()))
+                return; // if only the comment has been set, don't bother adding a command
+
+            String srgName = (String) row[1];
+            String mcpName = (String) row[0];
+            String comment = (String) row[3];
+
+            if (mcpName.trim().isEmpty())
+                return;
+
+            synchronized (editLock) {
+                CsvData result = processMemberDataEdit(MemberType.FIELD, srgFileData.srgFieldName2FieldData, srgFieldData2CsvData, srgName, mcpName, comment);
+
+                if (result != null) {
+                    csvFieldData.updateCsvDataForKey(srgName, result);
+                    srgFieldData2CsvData.put(srgFileData.srgFieldName2FieldData.get(srgName), result);
+                    recordEdit(MemberType.FIELD, result.toCsv());
+                    markSearchIndexEdited(srgFileData.srgFieldName2ClassData.get(srgName));
+                    parentGui.setCsvFileEdited(true);
+                }
+            }
         }
+    }
 
-        @Override
-        public Class<?> getColumnClass(int columnIndex) {
-            if (columnIndex < columnTypes.length && columnIndex >= 0)
-                return columnTypes[columnIndex];
+    /**
+     * The SRG, EXC and static method data parsed from one {mc_ver} directory. None of it changes after parsing (edits only touch
+     * the CSV data of a version), so the loaders of several versions can use it at once. {@code key} identifies the files it was
+     * parsed from, so a re-downloaded SRG zip is not mistaken for the cached one.
+     */
+    private static final class SrgLayer {
+        final String key;
+        final SrgFile srgFileData;
+        final ExcFile excFileData;
+
+        SrgLayer(String key, SrgFile srgFileData, ExcFile excFileData) {
+            this.key = key;
+            this.srgFileData = srgFileData;
+            this.excFileData = excFileData;
+        }
+    }
 
-            return String.class;
+    /**
+     * The text files of one load. Each is read from its loose copy if there is one and otherwise from the entry of the same name
+     * in the kept zip, so the paths are only usable while the zips are open.
+     */
+    private static final class Sources {
+        final Path srg, exc, staticMethods, fields, methods, params;
+
+        Sources(File srgDir, FileSystem srgZip, File mappingDir, FileSystem mappingZip, boolean isNew) {
+            srg = source(srgDir, srgZip, srgFileName(isNew));
+            exc = source(srgDir, srgZip, excFileName(isNew));
+            staticMethods = source(srgDir, srgZip, staticMethodsFileName(isNew));
+            fields = source(mappingDir, mappingZip, "fields.csv");
+            methods = source(mappingDir, mappingZip, "methods.csv");
+            params = source(mappingDir, mappingZip, "params.csv");
         }
 
-        @Override
-        public boolean isCellEditable(int rowIndex, int columnIndex) {
-            if (columnIndex < isColumnEditable.length && columnIndex >= 0)
-                return isColumnEditable[columnIndex];
+        private static Path source(File dir, FileSystem zip, String name) {
+            File file = new File(dir, name);
+            return file.exists() || zip == null ? file.toPath() : zip.getPath("/", name);
+        }
+    }
 
-            return false;
+    /**
+     * Stages finish in no fixed order, so progress counts completed stages rather than the position of the current one.
+     */
+    private static class LoadProgress {
+        private final IProgressListener progress;
+        private final int max;
+        private final AtomicInteger completed = new AtomicInteger();
+
+        LoadProgress(IProgressListener progress, int max) {
+            this.progress = progress;
+            this.max = max;
+            progress.setMax(max);
+            progress.set(0);
         }
 
-        @Override
-        public Object getValueAt(int rowIndex, int columnIndex) {
-            return data[rowIndex][Math.min(columnIndex, data[rowIndex].length - 1)];
+        void stage(String text) {
+            progress.set(completed.get(), text);
         }
 
-        @Override
-        public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
-            data[rowIndex][columnIndex] = aValue;
+        /**
+         * Shows how far a download has got in the status text. The stage count stays put, as both zips download at once.
+         */
+        IProgressListener download() {
+            return new IProgressListener() {
+                private int max;
+                private String text;
+
+                @Override
+                public void start(int max, String text) {
+                    this.max = max;
+                    this.text = text;
+                    stage(text);
+                }
 
-            if (columnIndex == 3 && aValue != null && (data[rowIndex][0] == null || data[rowIndex][0].toString().trim().isEmpty()))
-                return; // if only the comment has been set, don't bother adding a command
+                @Override
+                public void set(int value) {
+                    stage(max > 0 ? text + " (" + value * 100 / max + "%)" : text + " (" + value + " KB)");
+                }
 
-            String srgName = (String) data[rowIndex][1];
-            String mcpName = (String) data[rowIndex][0];
-            String comment = (String) data[rowIndex][3];
+                @Override
+                public void set(int value, String text) {
+                    this.text = text;
+                    set(value);
+                }
 
-            if (mcpName.trim().isEmpty())
-                return;
+                @Override
+                public void setMax(int max) {
+                    this.max = max;
+                }
+            };
+        }
 
-            CsvData result = processMemberDataEdit(MemberType.FIELD, srgFileData.srgFieldName2FieldData, srgFieldData2CsvData, srgName, mcpName, comment);
+        <T> T done(T result, String text) {
+            progress.set(Math.min(completed.incrementAndGet(), max), text);
+            return result;
+        }
 
-            if (result != null) {
-                csvFieldData.updateCsvDataForKey(srgName, result);
-                srgFieldData2CsvData.put(srgFileData.srgFieldName2FieldData.get(srgName), result);
-                parentGui.setCsvFileEdited(true);
-            }
+        void finish() {
+            progress.set(max);
         }
     }
 }
@@ -41,4 +41,14 @@ public class MethodSrgData extends MemberSrgData implements Comparable<MethodSrg
         else
             return 1;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof MethodSrgData && getSrgName().equals(((MethodSrgData) o).getSrgName());
+    }
+
+    @Override
+    public int hashCode() {
+        return getSrgName().hashCode();
+    }
 }
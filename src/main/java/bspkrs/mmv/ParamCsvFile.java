@@ -17,10 +17,11 @@
 package bspkrs.mmv;
 
 import java.io.*;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.TreeMap;
 
 public class ParamCsvFile {
@@ -30,55 +31,73 @@ public class ParamCsvFile {
     private String headerLine;
 
     public ParamCsvFile(File file) throws IOException {
-        this.file = file;
-        srgParamName2ParamCsvData = new TreeMap<>();
-        readFromFile();
-        isDirty = false;
+        this(file, new StringPool());
     }
 
-    static void writeBackup(File file, String headerLine) throws IOException {
-        if (file.exists()) {
-            File fileBak = new File(file.getAbsolutePath() + "_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".bak");
-            if (!file.renameTo(fileBak)) {
-                System.out.println("Failed to rename Backup file!");
-            }
-        }
+    ParamCsvFile(File file, StringPool pool) throws IOException {
+        this(file, file.toPath(), pool);
+    }
 
-        if (!file.createNewFile()) {
-            System.out.println("Failed to create new Backup file");
-        }
+    /**
+     * Reads the CSV from {@code source}, such as an entry of the mapping zip, while edits are still written to {@code file}.
+     */
+    ParamCsvFile(File file, Path source, StringPool pool) throws IOException {
+        this.file = file;
+        srgParamName2ParamCsvData = new HashMap<>(CsvFile.expectedRows(source));
+        readFrom(source, pool);
+        isDirty = false;
+    }
 
-        PrintWriter out = new PrintWriter(new FileWriter(file));
-        out.println(headerLine);
+    /**
+     * Creates an empty instance for {@link MappingSnapshot} to populate without reading {@code file}.
+     */
+    ParamCsvFile(File file, String headerLine) {
+        this.file = file;
+        this.headerLine = headerLine;
+        srgParamName2ParamCsvData = new HashMap<>();
+        isDirty = false;
     }
 
     public void readFromFile() throws IOException {
-        try (Scanner in = new Scanner(new BufferedReader(new FileReader(file)))) {
-            in.useDelimiter(",");
-            headerLine = in.nextLine(); // Skip header row
-            while (in.hasNextLine()) {
-                String srgName = in.next();
-                String mcpName = in.next();
-                String side = in.nextLine().substring(1);
-                srgParamName2ParamCsvData.put(srgName, new ParamCsvData(srgName, mcpName, Integer.parseInt(side)));
+        readFrom(file.toPath(), new StringPool());
+    }
+
+    private void readFrom(Path source, StringPool pool) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(source))); CsvReader in = new CsvReader(reader)) {
+            headerLine = reader.readLine(); // Skip header row
+            while (in.next()) {
+                String srgName = in.get(0, pool);
+                String mcpName = in.get(1, pool);
+                srgParamName2ParamCsvData.put(srgName, new ParamCsvData(srgName, mcpName, in.getInt(2)));
             }
         }
     }
 
     public void writeToFile() throws IOException {
         if (isDirty) {
-            writeBackup(file, headerLine);
-            PrintWriter out = new PrintWriter(new FileWriter(file));
-
-            for (ParamCsvData data : srgParamName2ParamCsvData.values())
-                out.println(data.toCsv());
-
-            out.close();
+            try (CsvFileWriter out = new CsvFileWriter(file)) {
+                out.println(headerLine);
+                for (ParamCsvData data : new TreeMap<>(srgParamName2ParamCsvData).values())
+                    out.println(data.toCsv());
+                out.commit();
+            }
 
             isDirty = false;
         }
     }
 
+    String getHeaderLine() {
+        return headerLine;
+    }
+
+    Collection<ParamCsvData> getCsvData() {
+        return srgParamName2ParamCsvData.values();
+    }
+
+    void putCsvData(ParamCsvData csvData) {
+        srgParamName2ParamCsvData.put(csvData.getSrgName(), csvData);
+    }
+
     public boolean hasCsvDataForKey(String srgName) {
         return srgParamName2ParamCsvData.containsKey(srgName);
     }
@@ -15,29 +15,45 @@
  */
 package bspkrs.mmv;
 
-import bspkrs.mmv.gui.MappingGui;
+import immibis.bon.IProgressListener;
 
 import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
+import java.util.*;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 public class RemoteZipHandler {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final URL zipUrl;
     private final URL digestUrl;
     private final File localDir;
     private final String digestType;
     private final String zipFileName;
+    private final Set<String> entries;
+    private final boolean keepZip;
+    private final CachePolicy cachePolicy;
+    private final IProgressListener progress;
 
     public RemoteZipHandler(String urlString, File dir, String digestType) throws MalformedURLException {
+        this(urlString, dir, digestType, null, false, CachePolicy.DEFAULT, null);
+    }
+
+    /**
+     * @param entries  names of the zip entries the caller needs, or null for all of them
+     * @param keepZip  keep the zip as it is instead of extracting it, for the caller to read through a zip file system. Loose
+     *                 copies of {@code entries} left from an earlier version are deleted, so they cannot shadow the new zip.
+     * @param cachePolicy when the cached zip may be used without checking its digest against the server
+     * @param progress told how far the zip download has got, if one is needed; may be null
+     */
+    public RemoteZipHandler(String urlString, File dir, String digestType, Set<String> entries, boolean keepZip, CachePolicy cachePolicy,
+                            IProgressListener progress) throws MalformedURLException {
         zipUrl = new URL(urlString);
         if (digestType != null)
             digestUrl = new URL(urlString + "." + digestType.toLowerCase());
@@ -47,15 +63,24 @@ public class RemoteZipHandler {
         zipFileName = tokens[tokens.length - 1];
         localDir = dir;
         this.digestType = digestType;
+        this.entries = entries;
+        this.keepZip = keepZip;
+        this.cachePolicy = cachePolicy;
+        this.progress = progress;
+    }
+
+    /**
+     * Where the zip is downloaded to. It only stays there in {@code keepZip} mode.
+     */
+    public File getZipFile() {
+        return new File(localDir, zipFileName);
     }
 
     public static String[] loadTextFromURL(URL url, String[] defaultValue) {
         List<String> arraylist = new ArrayList<>();
         Scanner scanner = null;
         try {
-            URLConnection uc = url.openConnection();
-            uc.addRequestProperty("User-Agent", "MMV/" + MappingGui.VERSION_NUMBER);
-            InputStream is = uc.getInputStream();
+            InputStream is = HttpDownloader.openConnection(url).getInputStream();
             scanner = new Scanner(is, "UTF-8");
 
             while (scanner.hasNextLine()) {
@@ -94,16 +119,17 @@ public class RemoteZipHandler {
 
         is.close();
 
-        byte[] mdbytes = md.digest();
+        return toHex(md.digest());
+    }
 
-        //convert the byte to hex format
+    static String toHex(byte[] mdbytes) {
         StringBuilder sb = new StringBuilder();
         for (byte mdbyte : mdbytes) sb.append(Integer.toString((mdbyte & 0xff) + 0x100, 16).substring(1));
         return sb.toString();
     }
 
     public static void extractZip(File zipFile, File destDir) throws IOException {
-        byte[] buffer = new byte[1024];
+        byte[] buffer = new byte[BUFFER_SIZE];
         if (!destDir.exists() && !destDir.mkdirs()) {
             System.out.println("Failed to create Destination Directory!");
         }
@@ -158,67 +184,127 @@ public class RemoteZipHandler {
     }
 
     public void checkRemoteZip() throws IOException, NoSuchAlgorithmException, DigestException {
-        // fetch zip file sha1
+        // line 1: the digest of the cached zip, line 2: the server's validator for the digest file it came from
         boolean fetchZip = true;
         String remoteHash = null;
+        String existingHash = "";
+        String validator = null;
         File digestFile = null;
         if (digestType != null) {
-            // check hash against local hash if exists
-            remoteHash = loadTextFromURL(digestUrl, new String[]{""})[0];
-            if (!remoteHash.isEmpty()) {
-                digestFile = new File(localDir, zipFileName + "." + digestType.toLowerCase());
-
-                // if local digest exists and hashes match skip getting the zip file
-                if (digestFile.exists()) {
-                    String existingHash = loadTextFromFile(digestFile, new String[]{""})[0];
-                    if (!existingHash.isEmpty() && remoteHash.equals(existingHash))
-                        fetchZip = false;
+            digestFile = getDigestFile();
+            String[] digest = loadTextFromFile(digestFile, new String[]{""});
+            existingHash = digest[0];
+            validator = digest.length > 1 ? digest[1] : null;
+        }
+        boolean cached = isCached();
+
+        // Offline, or with a digest checked recently enough, the cached zip is used without asking the server
+        if (cached && (cachePolicy.isOffline() || digestType != null && cachePolicy.isDigestFresh(digestFile)))
+            return;
+        if (cachePolicy.isOffline())
+            throw new FileNotFoundException(zipFileName + " is not cached and offline mode is on");
+
+        if (digestType != null) {
+            // fetch zip file sha1, which the server only sends if it changed since the cached zip was checked
+            try {
+                HttpDownloader.Text text = HttpDownloader.fetchText(digestUrl, cached ? validator : null);
+                remoteHash = text.lines == null ? existingHash : text.lines.length > 0 ? text.lines[0] : "";
+                validator = text.validator;
+            } catch (IOException e) {
+                if (cached) {
+                    System.err.println("Unable to check " + digestUrl + ", using the cached zip: " + e);
+                    return;
                 }
+                remoteHash = "";
+            }
+
+            // if local digest exists and hashes match skip getting the zip file
+            if (cached && remoteHash.equals(existingHash)) {
+                fetchZip = false;
+                writeDigest(digestFile, remoteHash, validator); // starts its time to live over
             }
         }
 
         if (fetchZip) {
-            // download zip
+            // download zip, resuming an earlier attempt at the same version if one was cut short
             File localZip = new File(localDir, zipFileName);
-            if (localZip.exists() && !localZip.delete()) {
-                System.out.println("Failed to delete local zip file!");
-            }
-            try (OutputStream output = new FileOutputStream(localZip)) {
-                URLConnection uc = zipUrl.openConnection();
-                uc.addRequestProperty("User-Agent", "MMV/" + MappingGui.VERSION_NUMBER);
-                byte[] buffer = new byte[1024]; // Or whatever
-                int bytesRead;
-                try (InputStream is = uc.getInputStream()) {
-                    while ((bytesRead = is.read(buffer)) > 0)
-                        output.write(buffer, 0, bytesRead);
-                }
-            }
+            HttpDownloader downloader = new HttpDownloader(zipUrl, digestType, progress);
+            String version = remoteHash != null ? remoteHash : "";
 
-            // Check hash of downloaded file to ensure we received it correctly
-            if (digestType != null && !remoteHash.isEmpty()) {
-                String downloadHash = getFileDigest(new FileInputStream(localZip), digestType);
-                if (!remoteHash.equals(downloadHash))
+            if (keepZip) {
+                String downloadHash = downloader.download(localZip, version);
+                if (digestType != null && !remoteHash.isEmpty() && !remoteHash.equals(downloadHash)) {
+                    if (localZip.exists() && !localZip.delete()) {
+                        System.out.println("Failed to delete local zip file!");
+                    }
                     throw new java.security.DigestException("Remote digest does not match digest of downloaded file!");
-            }
+                }
 
-            // extract zip file
-            extractZip(localZip, localDir);
-            if (localZip.exists() && !localZip.delete()) {
-                System.out.println("Failed to delete local zip file!");
-            }
+                if (entries != null)
+                    for (String entry : entries) {
+                        File file = new File(localDir, entry);
+                        if (file.exists() && !file.delete())
+                            System.out.println("Failed to delete Destination File!");
+                    }
+            } else {
+                String downloadHash = downloader.download(localZip, version);
 
-            // save new hash after successful extract
-            if (digestType != null && !remoteHash.isEmpty()) {
-                if (digestFile.exists() && !digestFile.delete()) {
-                    System.out.println("Failed to delete Digest file!");
+                // Check hash of downloaded file to ensure we received it correctly
+                if (digestType != null && !remoteHash.isEmpty() && !remoteHash.equals(downloadHash)) {
+                    if (localZip.exists() && !localZip.delete()) {
+                        System.out.println("Failed to delete local zip file!");
+                    }
+                    throw new java.security.DigestException("Remote digest does not match digest of downloaded file!");
                 }
-                if (digestFile.createNewFile()) {
-                    System.out.println("Failed to create Digest file!");
+
+                // extract zip file
+                extractZip(localZip, localDir);
+                if (localZip.exists() && !localZip.delete()) {
+                    System.out.println("Failed to delete local zip file!");
                 }
-                PrintWriter out = new PrintWriter(new FileWriter(digestFile));
-                out.print(remoteHash);
-                out.close();
             }
+
+            // save new hash after successful extract
+            if (digestType != null && !remoteHash.isEmpty())
+                writeDigest(digestFile, remoteHash, validator);
+        }
+    }
+
+    private static void writeDigest(File digestFile, String hash, String validator) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(digestFile))) {
+            out.println(hash);
+            if (validator != null)
+                out.println(validator);
+        }
+    }
+
+    /**
+     * Whether an earlier download is still around with the files the caller needs, so that it can be used offline.
+     */
+    public boolean isCached() {
+        return (digestType == null || !loadTextFromFile(getDigestFile(), new String[]{""})[0].isEmpty()) && hasEntries();
+    }
+
+    private File getDigestFile() {
+        return new File(localDir, zipFileName + "." + digestType.toLowerCase());
+    }
+
+    /**
+     * Whether the files the caller needs are still around, either loose or in the kept zip. A kept zip that cannot be read
+     * counts as missing, so it is downloaded again.
+     */
+    private boolean hasEntries() {
+        if (entries == null)
+            return true;
+
+        try (ZipFile zip = keepZip && getZipFile().exists() ? new ZipFile(getZipFile()) : null) {
+            for (String entry : entries)
+                if (!new File(localDir, entry).exists() && (zip == null || zip.getEntry(entry) == null))
+                    return false;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Unable to read " + getZipFile() + ": " + e);
+            return false;
         }
     }
 }
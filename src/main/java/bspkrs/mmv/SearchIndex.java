@@ -0,0 +1,364 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Trigram index from the searchable text of a class (its own names plus the names, MCP names and comments of its members) to
+ * the class. Lookups only narrow the candidates; every candidate is still checked with the same contains() calls the full scan
+ * uses, so results are identical. Classes whose CSV data was edited after the index was built are always treated as candidates.
+ */
+final class SearchIndex {
+    static final int GRAM = 3;
+
+    private final ClassSrgData[] classes;
+    private final Map<ClassSrgData, Integer> classIds = new HashMap<>();
+    private final Map<ClassSrgData, Set<MethodSrgData>> class2MethodDataSet;
+    private final Map<ClassSrgData, Set<FieldSrgData>> class2FieldDataSet;
+    private final Map<MethodSrgData, CsvData> srgMethodData2CsvData;
+    private final Map<FieldSrgData, CsvData> srgFieldData2CsvData;
+    private final BitSet edited = new BitSet();
+    private final Object csvLock;
+
+    // postings of gram id g are postingIds[postingStart[g] .. postingStart[g + 1]), sorted by class id
+    private final GramTable grams = new GramTable();
+    private int[] postingStart;
+    private int[] postingIds;
+
+    /**
+     * @param csvLock held while the CSV data of a class is read, as the maps and entries change when members are edited
+     */
+    SearchIndex(SrgFile srgFileData, Map<MethodSrgData, CsvData> srgMethodData2CsvData, Map<FieldSrgData, CsvData> srgFieldData2CsvData, Object csvLock) {
+        this.csvLock = csvLock;
+        this.class2MethodDataSet = srgFileData.class2MethodDataSet;
+        this.class2FieldDataSet = srgFileData.class2FieldDataSet;
+        this.srgMethodData2CsvData = srgMethodData2CsvData;
+        this.srgFieldData2CsvData = srgFieldData2CsvData;
+
+        for (ClassSrgData classData : srgFileData.getSortedClasses())
+            addClass(classData);
+        for (ClassSrgData classData : class2MethodDataSet.keySet())
+            addClass(classData);
+        for (ClassSrgData classData : class2FieldDataSet.keySet())
+            addClass(classData);
+
+        classes = new ClassSrgData[classIds.size()];
+        for (Map.Entry<ClassSrgData, Integer> entry : classIds.entrySet())
+            classes[entry.getValue()] = entry.getKey();
+
+        build();
+    }
+
+    private void addClass(ClassSrgData classData) {
+        if (!classIds.containsKey(classData))
+            classIds.put(classData, classIds.size());
+    }
+
+    private void build() {
+        // First pass: the distinct gram ids of every class, stored back to back
+        IntBuffer classGrams = new IntBuffer(1 << 16);
+        int[] classGramEnd = new int[classes.length];
+        IntBuffer scratch = new IntBuffer(256);
+
+        for (int id = 0; id < classes.length; id++) {
+            scratch.size = 0;
+            ClassSrgData classData = classes[id];
+            addGrams(scratch, classData.getSrgName());
+            addGrams(scratch, classData.getObfName());
+            addGrams(scratch, classData.getSrgPkgName());
+
+            synchronized (csvLock) {
+                Set<MethodSrgData> methods = class2MethodDataSet.get(classData);
+                if (methods != null)
+                    for (MethodSrgData methodData : methods) {
+                        addGrams(scratch, methodData.getSrgName());
+                        addGrams(scratch, methodData.getObfName());
+                        addGrams(scratch, srgMethodData2CsvData.get(methodData));
+                    }
+
+                Set<FieldSrgData> fields = class2FieldDataSet.get(classData);
+                if (fields != null)
+                    for (FieldSrgData fieldData : fields) {
+                        addGrams(scratch, fieldData.getSrgName());
+                        addGrams(scratch, fieldData.getObfName());
+                        addGrams(scratch, srgFieldData2CsvData.get(fieldData));
+                    }
+            }
+
+            Arrays.sort(scratch.data, 0, scratch.size);
+            int last = -1;
+            for (int i = 0; i < scratch.size; i++)
+                if (scratch.data[i] != last)
+                    classGrams.add(last = scratch.data[i]);
+            classGramEnd[id] = classGrams.size;
+        }
+
+        // Second pass: invert into one sorted posting list per gram
+        postingStart = new int[grams.size() + 1];
+        for (int i = 0; i < classGrams.size; i++)
+            postingStart[classGrams.data[i] + 1]++;
+        for (int g = 0; g < grams.size(); g++)
+            postingStart[g + 1] += postingStart[g];
+
+        postingIds = new int[classGrams.size];
+        int[] fill = Arrays.copyOf(postingStart, grams.size());
+        for (int id = 0, i = 0; id < classes.length; id++)
+            for (; i < classGramEnd[id]; i++)
+                postingIds[fill[classGrams.data[i]]++] = id;
+    }
+
+    private void addGrams(IntBuffer out, CsvData csv) {
+        if (csv != null) {
+            addGrams(out, csv.getMcpName());
+            addGrams(out, csv.getComment());
+        }
+    }
+
+    private void addGrams(IntBuffer out, String s) {
+        if (s == null)
+            return;
+
+        for (int i = 0; i + GRAM <= s.length(); i++)
+            out.add(grams.idFor(key(s, i)));
+    }
+
+    private static long key(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    /**
+     * Marks a class whose member CSV data changed; its postings may be stale, so it is checked on every query from now on.
+     */
+    synchronized void markEdited(ClassSrgData classData) {
+        Integer id = classData != null ? classIds.get(classData) : null;
+        if (id != null)
+            edited.set(id);
+    }
+
+    /**
+     * Returns the classes whose own names or member names, MCP names or comments contain {@code input}. Inputs shorter than a
+     * trigram cannot be looked up and must be answered by a scan instead. When {@code within} is given it must hold every class
+     * that can match, and it is checked instead of the index candidates if it is the smaller set.
+     */
+    Set<ClassSrgData> search(String input, Collection<ClassSrgData> within) {
+        if (input.length() < GRAM)
+            throw new IllegalArgumentException("Search input must be at least " + GRAM + " characters");
+
+        // the postings never change once built; only the edited set does, and it is copied rather than held
+        BitSet candidates = candidates(input);
+        synchronized (this) {
+            candidates.or(edited);
+        }
+
+        if (within != null && within.size() < candidates.cardinality())
+            return filter(within, input);
+
+        Set<ClassSrgData> results = new TreeSet<>();
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            checkCancelled();
+            if (matches(classes[id], input))
+                results.add(classes[id]);
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the classes of {@code within} that match {@code input}.
+     */
+    Set<ClassSrgData> filter(Collection<ClassSrgData> within, String input) {
+        Set<ClassSrgData> results = new TreeSet<>();
+        for (ClassSrgData classData : within) {
+            checkCancelled();
+            if (matches(classData, input))
+                results.add(classData);
+        }
+
+        return results;
+    }
+
+    /**
+     * Searches run on a background thread and are abandoned by interrupting it.
+     */
+    static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted())
+            throw new CancellationException("Search cancelled");
+    }
+
+    private BitSet candidates(String input) {
+        // Intersect starting with the rarest gram; repeated grams sort next to each other and are skipped
+        int count = input.length() - GRAM + 1;
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = grams.get(key(input, i));
+            if (ids[i] < 0)
+                return new BitSet();
+        }
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++)
+            order[i] = ids[i];
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int c = Integer.compare(postingLength(a), postingLength(b));
+                return c != 0 ? c : Integer.compare(a, b);
+            }
+        });
+
+        int[] current = Arrays.copyOfRange(postingIds, postingStart[order[0]], postingStart[order[0] + 1]);
+        int size = current.length;
+        for (int i = 1; i < count && size > 0; i++) {
+            int g = order[i];
+            if (g == order[i - 1].intValue())
+                continue;
+            size = intersect(current, size, postingIds, postingStart[g], postingStart[g + 1]);
+        }
+
+        BitSet result = new BitSet(classes.length);
+        for (int i = 0; i < size; i++)
+            result.set(current[i]);
+        return result;
+    }
+
+    private int postingLength(int gramId) {
+        return postingStart[gramId + 1] - postingStart[gramId];
+    }
+
+    /**
+     * Intersects the sorted {@code a[0, aSize)} with the sorted {@code b[from, to)} in place and returns the new size of a.
+     */
+    private static int intersect(int[] a, int aSize, int[] b, int from, int to) {
+        int size = 0;
+        int j = from;
+        for (int i = 0; i < aSize && j < to; i++) {
+            int v = a[i];
+            if (to - j > 64 * (aSize - i)) {
+                int found = Arrays.binarySearch(b, j, to, v);
+                j = found >= 0 ? found : -found - 1;
+            } else
+                while (j < to && b[j] < v)
+                    j++;
+            if (j < to && b[j] == v)
+                a[size++] = v;
+        }
+        return size;
+    }
+
+    /**
+     * The same checks getSearchResults makes for one class during a full scan.
+     */
+    boolean matches(ClassSrgData classData, String input) {
+        if (classData.contains(input))
+            return true;
+
+        synchronized (csvLock) {
+            Set<MethodSrgData> methods = class2MethodDataSet.get(classData);
+            if (methods != null)
+                for (MethodSrgData methodData : methods) {
+                    CsvData csv = srgMethodData2CsvData.get(methodData);
+                    if (methodData.contains(input) || csv != null && csv.contains(input))
+                        return true;
+                }
+
+            Set<FieldSrgData> fields = class2FieldDataSet.get(classData);
+            if (fields != null)
+                for (FieldSrgData fieldData : fields) {
+                    CsvData csv = srgFieldData2CsvData.get(fieldData);
+                    if (fieldData.contains(input) || csv != null && csv.contains(input))
+                        return true;
+                }
+        }
+
+        return false;
+    }
+
+    private static final class IntBuffer {
+        int[] data;
+        int size;
+
+        IntBuffer(int capacity) {
+            data = new int[capacity];
+        }
+
+        void add(int v) {
+            if (size == data.length)
+                data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+    }
+
+    /**
+     * Open addressing map from a packed trigram to a dense gram id.
+     */
+    private static final class GramTable {
+        private long[] keys = new long[1 << 14];
+        private int[] values = new int[1 << 14];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                if (values[i] == 0)
+                    return -1;
+                if (keys[i] == key)
+                    return values[i] - 1;
+            }
+        }
+
+        int idFor(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                if (values[i] == 0) {
+                    keys[i] = key;
+                    values[i] = ++size; // stored off by one so that 0 marks an empty slot
+                    if (size * 2 > keys.length)
+                        grow();
+                    return size - 1;
+                }
+                if (keys[i] == key)
+                    return values[i] - 1;
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++)
+                if (oldValues[j] != 0) {
+                    int i = hash(oldKeys[j]) & mask;
+                    while (values[i] != 0)
+                        i = (i + 1) & mask;
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -18,28 +18,36 @@ package bspkrs.mmv;
 import bspkrs.mmv.version.NaturalOrderComparator;
 
 import java.util.Comparator;
+import java.util.regex.Pattern;
 
 public class SplittedNaturalComparator implements Comparator<Object> {
+    private static final NaturalOrderComparator PART_COMPARATOR = new NaturalOrderComparator(); // keeps no state
     private final String splitter;
+    private final Pattern pattern;
 
     public SplittedNaturalComparator(String splitter) {
         this.splitter = splitter;
+        // String.split() already skips the regex engine for a plain single character, any other splitter is compiled once
+        pattern = splitter.length() == 1 && ".$|()[{^?*+\\".indexOf(splitter.charAt(0)) < 0 ? null : Pattern.compile(splitter);
     }
 
     @Override
     public int compare(Object o1, Object o2) {
-        String[] a = o1.toString().split(splitter);
-        String[] b = o2.toString().split(splitter);
+        String[] a = split(o1.toString());
+        String[] b = split(o2.toString());
 
         if (a.length != b.length)
             return b.length - a.length;
 
-        NaturalOrderComparator comp = new NaturalOrderComparator();
         for (int i = 0; i < a.length; i++) {
-            int comparison = comp.compare(a[i], b[i]);
+            int comparison = PART_COMPARATOR.compare(a[i], b[i]);
             if (comparison != 0)
                 return comparison;
         }
         return 0;
     }
+
+    private String[] split(String s) {
+        return pattern != null ? pattern.split(s) : s.split(splitter);
+    }
 }
@@ -19,87 +19,118 @@ package bspkrs.mmv;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 public class SrgFile {
     // All maps should be inter-connected to reference a single set of objects
-    public final Map<String, ClassSrgData> srgClassName2ClassData = new TreeMap<>();            // full/pkg/ClassSrgName -> ClassSrgData
-    public final Map<String, Set<ClassSrgData>> srgPkg2ClassDataSet = new TreeMap<>();            // full/pkg -> Set<ClassSrgData>
-    public final Map<String, FieldSrgData> srgFieldName2FieldData = new TreeMap<>();            // field_12345_a -> FieldSrgData
-    public final Map<String, MethodSrgData> srgMethodName2MethodData = new TreeMap<>();            // func_12345_a -> MethodSrgData
-    public final Map<ClassSrgData, Set<MethodSrgData>> class2MethodDataSet = new TreeMap<>();
-    public final Map<ClassSrgData, Set<FieldSrgData>> class2FieldDataSet = new TreeMap<>();
-    public final Map<String, ClassSrgData> srgMethodName2ClassData = new TreeMap<>();            // func_12345_a -> ClassSrgData
-    public final Map<String, ClassSrgData> srgFieldName2ClassData = new TreeMap<>();            // field_12345_a -> ClassSrgData
+    public final Map<String, ClassSrgData> srgClassName2ClassData = new HashMap<>();            // full/pkg/ClassSrgName -> ClassSrgData
+    public final Map<String, Set<ClassSrgData>> srgPkg2ClassDataSet = new HashMap<>();            // full/pkg -> Set<ClassSrgData>
+    public final Map<String, FieldSrgData> srgFieldName2FieldData = new HashMap<>();            // field_12345_a -> FieldSrgData
+    public final Map<String, MethodSrgData> srgMethodName2MethodData = new HashMap<>();            // func_12345_a -> MethodSrgData
+    public final Map<ClassSrgData, Set<MethodSrgData>> class2MethodDataSet = new HashMap<>();
+    public final Map<ClassSrgData, Set<FieldSrgData>> class2FieldDataSet = new HashMap<>();
+    public final Map<String, ClassSrgData> srgMethodName2ClassData = new HashMap<>();            // func_12345_a -> ClassSrgData
+    public final Map<String, ClassSrgData> srgFieldName2ClassData = new HashMap<>();            // field_12345_a -> ClassSrgData
+    private ClassSrgData[] sortedClasses;
 
     SrgFile() {
     } // FIXME Needed so that TSrgFile can extend SrgFile. A shared interface/abstract probably makes more sense
 
     public SrgFile(File f, ExcFile excFile, StaticMethodsFile staticMethods) throws IOException {
-        try (Scanner in = new Scanner(new BufferedReader(new FileReader(f)))) {
-            while (in.hasNextLine()) {
-                if (in.hasNext("CL:")) {
+        this(f.toPath(), excFile, staticMethods);
+    }
+
+    public SrgFile(Path path, ExcFile excFile, StaticMethodsFile staticMethods) throws IOException {
+        this(path, excFile, staticMethods, new StringPool());
+    }
+
+    SrgFile(Path path, ExcFile excFile, StaticMethodsFile staticMethods, StringPool pool) throws IOException {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(Files.newInputStream(path)))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int pos = skipWhitespace(line, 0);
+                int end = tokenEnd(line, pos);
+
+                if (isToken(line, pos, end, "CL:")) {
                     // CL: a net/minecraft/util/EnumChatFormatting
-                    in.next(); // skip CL:
-                    String obf = in.next();
-                    String deobf = in.next();
-                    String srgName = getLastComponent(deobf);
-                    String pkgName = deobf.substring(0, deobf.lastIndexOf('/'));
+                    int obfStart = skipWhitespace(line, end);
+                    int obfEnd = tokenEnd(line, obfStart);
+                    int deobfStart = skipWhitespace(line, obfEnd);
+                    int deobfEnd = tokenEnd(line, deobfStart);
+                    int nameSep = line.lastIndexOf('/', deobfEnd - 1);
 
-                    ClassSrgData classData = new ClassSrgData(obf, srgName, pkgName, in.hasNext("#C"));
+                    String obf = pool.intern(line, obfStart, obfEnd);
+                    String srgName = pool.intern(line, nameSep + 1, deobfEnd);
+                    String pkgName = pool.intern(line, deobfStart, nameSep);
+
+                    ClassSrgData classData = new ClassSrgData(obf, srgName, pkgName, isClientOnly(line, deobfEnd));
 
                     if (!srgPkg2ClassDataSet.containsKey(pkgName))
                         srgPkg2ClassDataSet.put(pkgName, new TreeSet<ClassSrgData>());
                     srgPkg2ClassDataSet.get(pkgName).add(classData);
 
-                    srgClassName2ClassData.put(pkgName + "/" + srgName, classData);
+                    srgClassName2ClassData.put(classData.getFullyQualifiedSrgName(), classData);
 
                     if (!class2MethodDataSet.containsKey(classData))
                         class2MethodDataSet.put(classData, new TreeSet<MethodSrgData>());
 
                     if (!class2FieldDataSet.containsKey(classData))
                         class2FieldDataSet.put(classData, new TreeSet<FieldSrgData>());
-                } else if (in.hasNext("FD:")) {
+                } else if (isToken(line, pos, end, "FD:")) {
                     // FD: aql/c net/minecraft/block/BlockStoneBrick/field_94408_c #C
-                    in.next(); // skip FD:
-                    String[] obf = in.next().split("/");
-                    String obfOwner = obf[0];
-                    String obfName = obf[1];
-                    String deobf = in.next();
-                    String srgName = getLastComponent(deobf);
-                    String srgPkg = deobf.substring(0, deobf.lastIndexOf('/'));
-                    String srgOwner = getLastComponent(srgPkg);
-                    srgPkg = srgPkg.substring(0, srgPkg.lastIndexOf('/'));
-
-                    FieldSrgData fieldData = new FieldSrgData(obfOwner, obfName, srgOwner, srgPkg, srgName, in.hasNext("#C"));
+                    int obfStart = skipWhitespace(line, end);
+                    int obfEnd = tokenEnd(line, obfStart);
+                    int deobfStart = skipWhitespace(line, obfEnd);
+                    int deobfEnd = tokenEnd(line, deobfStart);
+                    int nameSep = line.lastIndexOf('/', deobfEnd - 1);
+                    int ownerSep = line.lastIndexOf('/', nameSep - 1);
+
+                    String obfOwner = obfComponent(pool, line, obfStart, obfEnd, 0);
+                    String obfName = obfComponent(pool, line, obfStart, obfEnd, 1);
+                    String srgName = pool.intern(line, nameSep + 1, deobfEnd);
+                    String srgOwner = pool.intern(line, ownerSep + 1, nameSep);
+                    String srgPkg = pool.intern(line, deobfStart, ownerSep);
+
+                    FieldSrgData fieldData = new FieldSrgData(obfOwner, obfName, srgOwner, srgPkg, srgName, isClientOnly(line, deobfEnd));
+                    ClassSrgData classData = srgClassName2ClassData.get(line.substring(deobfStart, nameSep));
 
                     srgFieldName2FieldData.put(srgName, fieldData);
-                    class2FieldDataSet.get(srgClassName2ClassData.get(srgPkg + "/" + srgOwner)).add(fieldData);
-                    srgFieldName2ClassData.put(srgName, srgClassName2ClassData.get(srgPkg + "/" + srgOwner));
-                } else if (in.hasNext("MD:")) {
+                    class2FieldDataSet.get(classData).add(fieldData);
+                    srgFieldName2ClassData.put(srgName, classData);
+                } else if (isToken(line, pos, end, "MD:")) {
                     // MD: aor/a (Lmt;)V net/minecraft/block/BlockHay/func_94332_a (Lnet/minecraft/client/renderer/texture/IconRegister;)V #C
-                    in.next(); // skip MD:
-                    String[] obf = in.next().split("/");
-                    String obfOwner = obf[0];
-                    String obfName = obf[1];
-                    String obfDescriptor = in.next();
-                    String deobf = in.next();
-                    String srgName = getLastComponent(deobf);
-                    String srgPkg = deobf.substring(0, deobf.lastIndexOf('/'));
-                    String srgOwner = getLastComponent(srgPkg);
-                    srgPkg = srgPkg.substring(0, srgPkg.lastIndexOf('/'));
-                    String srgDescriptor = in.next();
-
-                    MethodSrgData methodData = new MethodSrgData(obfOwner, obfName, obfDescriptor, srgOwner, srgPkg, srgName, srgDescriptor, in.hasNext("#C"));
+                    int obfStart = skipWhitespace(line, end);
+                    int obfEnd = tokenEnd(line, obfStart);
+                    int obfDescStart = skipWhitespace(line, obfEnd);
+                    int obfDescEnd = tokenEnd(line, obfDescStart);
+                    int deobfStart = skipWhitespace(line, obfDescEnd);
+                    int deobfEnd = tokenEnd(line, deobfStart);
+                    int srgDescStart = skipWhitespace(line, deobfEnd);
+                    int srgDescEnd = tokenEnd(line, srgDescStart);
+                    int nameSep = line.lastIndexOf('/', deobfEnd - 1);
+                    int ownerSep = line.lastIndexOf('/', nameSep - 1);
+
+                    String obfOwner = obfComponent(pool, line, obfStart, obfEnd, 0);
+                    String obfName = obfComponent(pool, line, obfStart, obfEnd, 1);
+                    String obfDescriptor = pool.intern(line, obfDescStart, obfDescEnd);
+                    String srgName = pool.intern(line, nameSep + 1, deobfEnd);
+                    String srgOwner = pool.intern(line, ownerSep + 1, nameSep);
+                    String srgPkg = pool.intern(line, deobfStart, ownerSep);
+                    String srgDescriptor = pool.intern(line, srgDescStart, srgDescEnd);
+
+                    MethodSrgData methodData = new MethodSrgData(obfOwner, obfName, obfDescriptor, srgOwner, srgPkg, srgName, srgDescriptor, isClientOnly(line, srgDescEnd));
+                    ClassSrgData classData = srgClassName2ClassData.get(line.substring(deobfStart, nameSep));
 
                     srgMethodName2MethodData.put(srgName, methodData);
-                    class2MethodDataSet.get(srgClassName2ClassData.get(srgPkg + "/" + srgOwner)).add(methodData);
-                    srgMethodName2ClassData.put(srgName, srgClassName2ClassData.get(srgPkg + "/" + srgOwner));
+                    class2MethodDataSet.get(classData).add(methodData);
+                    srgMethodName2ClassData.put(srgName, classData);
 
                     // Hack in the missing parameter data
-                    ExcData toAdd = new ExcData(srgOwner, srgName, srgDescriptor, new String[0], staticMethods.contains(srgName));
+                    ExcData toAdd = new ExcData(srgOwner, srgName, srgDescriptor, new String[0], staticMethods.contains(srgName)).intern(pool);
                     ExcData existing = excFile.srgMethodName2ExcData.get(srgName);
 
                     if ((existing == null) || (existing.getParameters().length < toAdd.getParameters().length)) {
@@ -107,14 +138,59 @@ public class SrgFile {
                         for (String parameter : toAdd.getParameters())
                             excFile.srgParamName2ExcData.put(parameter, toAdd);
                     }
-                } else
-                    in.nextLine();
+                }
             }
         }
     }
 
+    /**
+     * Returns every class in display order. The maps above are unordered, so the order is worked out once, on the first call
+     * after loading, and shared by all callers; the array must not be modified.
+     */
+    public synchronized ClassSrgData[] getSortedClasses() {
+        if (sortedClasses == null) {
+            sortedClasses = srgClassName2ClassData.values().toArray(new ClassSrgData[0]);
+            Arrays.sort(sortedClasses, ClassSrgData.PKG_ORDER);
+        }
+        return sortedClasses;
+    }
+
+    private static int skipWhitespace(String line, int pos) {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos)))
+            pos++;
+        return pos;
+    }
+
+    private static int tokenEnd(String line, int pos) {
+        while (pos < line.length() && !Character.isWhitespace(line.charAt(pos)))
+            pos++;
+        return pos;
+    }
+
+    private static boolean isToken(String line, int start, int end, String token) {
+        return end - start == token.length() && line.startsWith(token, start);
+    }
+
+    /**
+     * Checks whether the token following {@code pos} is the client-only marker.
+     */
+    private static boolean isClientOnly(String line, int pos) {
+        int start = skipWhitespace(line, pos);
+        return isToken(line, start, tokenEnd(line, start), "#C");
+    }
+
+    /**
+     * Returns the {@code index}th '/'-separated component of the obfuscated member token (owner is 0, name is 1).
+     */
+    private static String obfComponent(StringPool pool, String line, int start, int end, int index) {
+        for (int i = 0; i < index; i++)
+            start = line.indexOf('/', start) + 1;
+
+        int sep = line.indexOf('/', start);
+        return pool.intern(line, start, sep == -1 || sep > end ? end : sep);
+    }
+
     public static String getLastComponent(String s) {
-        String[] parts = s.split("/");
-        return parts[parts.length - 1];
+        return s.substring(s.lastIndexOf('/') + 1);
     }
 }
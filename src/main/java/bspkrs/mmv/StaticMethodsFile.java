@@ -17,31 +17,51 @@ package bspkrs.mmv;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 public class StaticMethodsFile {
-    private final File file;
-    public List<String> staticMethods;
+    private final Path path;
+    // contains() runs for every method of the SRG file, so lookups go through a set
+    private final Set<String> staticMethodSet = new HashSet<>();
+    /**
+     * A read-only view of the static method names, in no particular order.
+     */
+    public final Set<String> staticMethods = Collections.unmodifiableSet(staticMethodSet);
 
     public StaticMethodsFile(File file) throws IOException {
-        this.file = file;
-        staticMethods = new ArrayList<>();
-        readFromFile();
+        this(file.toPath());
+    }
+
+    public StaticMethodsFile(Path path) throws IOException {
+        this(path, new StringPool());
+    }
+
+    StaticMethodsFile(Path path, StringPool pool) throws IOException {
+        this.path = path;
+        readFromFile(pool);
     }
 
     public void readFromFile() throws IOException {
-        try (Scanner in = new Scanner(new BufferedReader(new FileReader(file)))) {
-            while (in.hasNextLine()) {
-                staticMethods.add(in.nextLine());
+        readFromFile(new StringPool());
+    }
+
+    private void readFromFile(StringPool pool) throws IOException {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(Files.newInputStream(path)))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = pool.intern(line);
+                staticMethodSet.add(line);
             }
         }
     }
 
     public boolean contains(String srgName) {
-        return staticMethods.contains(srgName);
+        return staticMethodSet.contains(srgName);
     }
 }
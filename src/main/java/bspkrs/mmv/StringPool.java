@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Deduplicates the names, descriptors and comments the parsers read, so every distinct value is stored once no matter how
+ * many members, files or CSV rows repeat it. Slices of a line or byte buffer can be looked up without creating a String
+ * first. The parsers of one load share a pool from several threads, so the table is split into separately locked stripes.
+ */
+final class StringPool {
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    StringPool() {
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe();
+    }
+
+    String intern(String s) {
+        if (s == null)
+            return null;
+
+        return stripe(s.hashCode()).intern(s, 0, s.length(), s.hashCode(), s);
+    }
+
+    /**
+     * Returns the pooled copy of {@code s.subSequence(start, end)}.
+     */
+    String intern(CharSequence s, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + s.charAt(i);
+
+        return stripe(hash).intern(s, start, end, hash, null);
+    }
+
+    /**
+     * Returns the pooled copy of {@code len} UTF-8 bytes of {@code b} starting at {@code off}.
+     */
+    String intern(byte[] b, int off, int len) {
+        int hash = 0;
+        for (int i = off; i < off + len; i++) {
+            if (b[i] < 0) // only ASCII maps byte for char; anything else is decoded first
+                return intern(new String(b, off, len, StandardCharsets.UTF_8));
+            hash = 31 * hash + b[i];
+        }
+
+        return stripe(hash).intern(b, off, len, hash);
+    }
+
+    /**
+     * Replaces every element of {@code a} with its pooled copy and returns {@code a}.
+     */
+    String[] internAll(String[] a) {
+        for (int i = 0; i < a.length; i++)
+            a[i] = intern(a[i]);
+        return a;
+    }
+
+    private Stripe stripe(int hash) {
+        return stripes[(hash ^ (hash >>> 16)) >>> 8 & (STRIPES - 1)];
+    }
+
+    private static final class Stripe {
+        private String[] table = new String[1 << 10];
+        private int size;
+
+        synchronized String intern(CharSequence s, int start, int end, int hash, String whole) {
+            int mask = table.length - 1;
+            for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+                String e = table[i];
+                if (e == null)
+                    return add(i, whole != null ? whole : s.subSequence(start, end).toString());
+                if (e.hashCode() == hash && matches(e, s, start, end))
+                    return e;
+            }
+        }
+
+        synchronized String intern(byte[] b, int off, int len, int hash) {
+            int mask = table.length - 1;
+            for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+                String e = table[i];
+                if (e == null)
+                    return add(i, new String(b, off, len, StandardCharsets.ISO_8859_1));
+                if (e.hashCode() == hash && matches(e, b, off, len))
+                    return e;
+            }
+        }
+
+        private String add(int i, String s) {
+            table[i] = s;
+            if (++size * 3 > table.length * 2)
+                grow();
+            return s;
+        }
+
+        private void grow() {
+            String[] old = table;
+            table = new String[old.length * 2];
+            int mask = table.length - 1;
+            for (String e : old)
+                if (e != null) {
+                    int i = spread(e.hashCode()) & mask;
+                    while (table[i] != null)
+                        i = (i + 1) & mask;
+                    table[i] = e;
+                }
+        }
+
+        private static int spread(int hash) {
+            return hash * 0x9E3779B9;
+        }
+
+        private static boolean matches(String e, CharSequence s, int start, int end) {
+            if (e.length() != end - start)
+                return false;
+            for (int i = 0; i < e.length(); i++)
+                if (e.charAt(i) != s.charAt(start + i))
+                    return false;
+            return true;
+        }
+
+        private static boolean matches(String e, byte[] b, int off, int len) {
+            if (e.length() != len)
+                return false;
+            for (int i = 0; i < len; i++)
+                if (e.charAt(i) != b[off + i])
+                    return false;
+            return true;
+        }
+    }
+}
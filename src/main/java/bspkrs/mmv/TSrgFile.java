@@ -1,82 +1,182 @@
 package bspkrs.mmv;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
 import java.util.TreeSet;
 
 public class TSrgFile extends SrgFile {
+    /**
+     * Whether joined.tsrg is memory-mapped (the default) or read onto the heap. Both modes share the same byte scanner. A file
+     * inside a zip is always read onto the heap.
+     */
+    public static boolean useMemoryMapping = Boolean.parseBoolean(System.getProperty("mmv.tsrg.mmap", "true"));
+
+    public TSrgFile(File f, ExcFile excFile, StaticMethodsFile staticMethods) throws IOException {
+        this(f.toPath(), excFile, staticMethods);
+    }
 
-    public TSrgFile(File f, ExcFile excFile, StaticMethodsFile staticMethods) throws FileNotFoundException {
-        try (Scanner in = new Scanner(new BufferedReader(new FileReader(f)))) {
-            String currentPackage = null;
-            String currentClass = null;
-            String currentObfClass = null;
-            while (in.hasNextLine()) {
-                String[] line = in.nextLine().split(" ");
+    public TSrgFile(Path path, ExcFile excFile, StaticMethodsFile staticMethods) throws IOException {
+        this(path, excFile, staticMethods, new StringPool());
+    }
 
-                if (line[0].indexOf("\t") == 0) // Member
-                {
-                    line[0] = line[0].substring(1); // ignore the leading tab
-
-                    if (line.length == 2) // Field
-                    {
-                        //	a field_192300_a
-                        String obf = line[0];
-                        String srgName = line[1];
-
-                        FieldSrgData fieldData = new FieldSrgData(currentObfClass, obf, currentClass, currentPackage, srgName, false);
-
-                        srgFieldName2FieldData.put(srgName, fieldData);
-                        class2FieldDataSet.get(srgClassName2ClassData.get(currentPackage + "/" + currentClass)).add(fieldData);
-                        srgFieldName2ClassData.put(srgName, srgClassName2ClassData.get(currentPackage + "/" + currentClass));
-                    } else if (line.length == 3) // Method
-                    {
-                        //	b (Lhy;)Lu; func_192295_b
-                        String obf = line[0];
-                        String descriptor = line[1];
-                        String srgName = line[2];
-
-                        MethodSrgData methodData = new MethodSrgData(currentObfClass, obf, descriptor, currentClass, currentPackage, srgName, descriptor/*FIXME*/, false);
-
-                        srgMethodName2MethodData.put(srgName, methodData);
-                        class2MethodDataSet.get(srgClassName2ClassData.get(currentPackage + "/" + currentClass)).add(methodData);
-                        srgMethodName2ClassData.put(srgName, srgClassName2ClassData.get(currentPackage + "/" + currentClass));
-
-                        // Hack in the missing parameter data
-                        ExcData toAdd = new ExcData(currentClass, srgName, descriptor/*FIXME*/, new String[0], staticMethods.contains(srgName));
-                        ExcData existing = excFile.srgMethodName2ExcData.get(srgName);
-
-                        if ((existing == null) || (existing.getParameters().length < toAdd.getParameters().length)) {
-                            excFile.srgMethodName2ExcData.put(srgName, toAdd);
-                            for (String parameter : toAdd.getParameters())
-                                excFile.srgParamName2ExcData.put(parameter, toAdd);
-                        }
-                    }
-                } else // Class
+    TSrgFile(Path path, ExcFile excFile, StaticMethodsFile staticMethods, StringPool pool) throws IOException {
+        ByteBuffer buf;
+        if (useMemoryMapping && path.getFileSystem() == FileSystems.getDefault()) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        } else
+            buf = ByteBuffer.wrap(Files.readAllBytes(path));
+
+        ByteScanner in = new ByteScanner(buf, pool);
+
+        String currentPackage = null;
+        String currentClass = null;
+        String currentObfClass = null;
+        ClassSrgData currentClassData = null;
+        Set<MethodSrgData> currentMethods = null;
+        Set<FieldSrgData> currentFields = null;
+
+        int limit = buf.limit();
+        int pos = 0;
+        while (pos < limit) {
+            int end = in.indexOf((byte) '\n', pos, limit);
+            int next = end + 1;
+            if (end > pos && in.byteAt(end - 1) == '\r')
+                end--;
+
+            if (end == pos) {
+                pos = next;
+                continue;
+            }
+
+            if (in.byteAt(pos) == '\t') // Member
+            {
+                int obfStart = pos + 1; // ignore the leading tab
+                int sep1 = in.indexOf((byte) ' ', obfStart, end);
+                int sep2 = in.indexOf((byte) ' ', sep1 + 1, end);
+
+                if (sep1 < end && sep2 == end) // Field
                 {
-                    // u net/minecraft/advancements/DisplayInfo
-                    currentObfClass = line[0];
-                    currentPackage = line[1].substring(0, line[1].lastIndexOf('/'));
-                    currentClass = line[1].substring(line[1].lastIndexOf('/') + 1);
+                    //	a field_192300_a
+                    String obf = in.decode(obfStart, sep1);
+                    String srgName = in.decode(sep1 + 1, end);
+
+                    FieldSrgData fieldData = new FieldSrgData(currentObfClass, obf, currentClass, currentPackage, srgName, false);
 
-                    ClassSrgData classData = new ClassSrgData(currentObfClass, currentClass, currentPackage, false);
+                    srgFieldName2FieldData.put(srgName, fieldData);
+                    currentFields.add(fieldData);
+                    srgFieldName2ClassData.put(srgName, currentClassData);
+                } else if (sep2 < end && in.indexOf((byte) ' ', sep2 + 1, end) == end) // Method
+                {
+                    //	b (Lhy;)Lu; func_192295_b
+                    String obf = in.decode(obfStart, sep1);
+                    String descriptor = in.decode(sep1 + 1, sep2);
+                    String srgName = in.decode(sep2 + 1, end);
 
-                    if (!srgPkg2ClassDataSet.containsKey(currentPackage))
-                        srgPkg2ClassDataSet.put(currentPackage, new TreeSet<ClassSrgData>());
-                    srgPkg2ClassDataSet.get(currentPackage).add(classData);
+                    MethodSrgData methodData = new MethodSrgData(currentObfClass, obf, descriptor, currentClass, currentPackage, srgName, descriptor/*FIXME*/, false);
 
-                    srgClassName2ClassData.put(currentPackage + "/" + currentClass, classData);
+                    srgMethodName2MethodData.put(srgName, methodData);
+                    currentMethods.add(methodData);
+                    srgMethodName2ClassData.put(srgName, currentClassData);
 
-                    if (!class2MethodDataSet.containsKey(classData))
-                        class2MethodDataSet.put(classData, new TreeSet<MethodSrgData>());
+                    // Hack in the missing parameter data
+                    ExcData toAdd = new ExcData(currentClass, srgName, descriptor/*FIXME*/, new String[0], staticMethods.contains(srgName)).intern(pool);
+                    ExcData existing = excFile.srgMethodName2ExcData.get(srgName);
 
-                    if (!class2FieldDataSet.containsKey(classData))
-                        class2FieldDataSet.put(classData, new TreeSet<FieldSrgData>());
+                    if ((existing == null) || (existing.getParameters().length < toAdd.getParameters().length)) {
+                        excFile.srgMethodName2ExcData.put(srgName, toAdd);
+                        for (String parameter : toAdd.getParameters())
+                            excFile.srgParamName2ExcData.put(parameter, toAdd);
+                    }
                 }
+            } else // Class
+            {
+                // u net/minecraft/advancements/DisplayInfo
+                int sep = in.indexOf((byte) ' ', pos, end);
+                int deobfEnd = in.indexOf((byte) ' ', sep + 1, end);
+                int nameSep = in.lastIndexOf((byte) '/', sep + 1, deobfEnd);
+                if (sep == end || nameSep == -1)
+                    throw new IOException("Malformed TSRG class line at byte offset " + pos + " in " + path);
+
+                currentObfClass = in.decode(pos, sep);
+                currentPackage = in.decode(sep + 1, nameSep);
+                currentClass = in.decode(nameSep + 1, deobfEnd);
+
+                currentClassData = new ClassSrgData(currentObfClass, currentClass, currentPackage, false);
+
+                if (!srgPkg2ClassDataSet.containsKey(currentPackage))
+                    srgPkg2ClassDataSet.put(currentPackage, new TreeSet<ClassSrgData>());
+                srgPkg2ClassDataSet.get(currentPackage).add(currentClassData);
+
+                srgClassName2ClassData.put(currentClassData.getFullyQualifiedSrgName(), currentClassData);
+
+                if (!class2MethodDataSet.containsKey(currentClassData))
+                    class2MethodDataSet.put(currentClassData, new TreeSet<MethodSrgData>());
+                currentMethods = class2MethodDataSet.get(currentClassData);
+
+                if (!class2FieldDataSet.containsKey(currentClassData))
+                    class2FieldDataSet.put(currentClassData, new TreeSet<FieldSrgData>());
+                currentFields = class2FieldDataSet.get(currentClassData);
             }
+
+            pos = next;
+        }
+    }
+
+    /**
+     * Minimal cursor-free view over the TSRG bytes; names are only decoded for the slices that are kept.
+     */
+    private static class ByteScanner {
+        private final ByteBuffer buf;
+        private final StringPool pool;
+        private byte[] scratch = new byte[128];
+
+        ByteScanner(ByteBuffer buf, StringPool pool) {
+            this.buf = buf;
+            this.pool = pool;
+        }
+
+        private byte byteAt(int i) {
+            return buf.get(i);
+        }
+
+        /**
+         * Returns the index of the first {@code b} in [from, to), or {@code to} if there is none.
+         */
+        private int indexOf(byte b, int from, int to) {
+            for (int i = from; i < to; i++)
+                if (buf.get(i) == b)
+                    return i;
+            return to;
+        }
+
+        /**
+         * Returns the index of the last {@code b} in [from, to), or -1 if there is none.
+         */
+        private int lastIndexOf(byte b, int from, int to) {
+            for (int i = to - 1; i >= from; i--)
+                if (buf.get(i) == b)
+                    return i;
+            return -1;
+        }
+
+        private String decode(int start, int end) {
+            int len = end - start;
+            if (len > scratch.length)
+                scratch = new byte[Math.max(len, scratch.length * 2)];
+
+            for (int i = 0; i < len; i++)
+                scratch[i] = buf.get(start + i);
+
+            return pool.intern(scratch, 0, len);
         }
     }
 }
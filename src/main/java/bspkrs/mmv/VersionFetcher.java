@@ -15,39 +15,234 @@
  */
 package bspkrs.mmv;
 
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.*;
 import java.net.URL;
-import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
+/**
+ * Lists the mapping versions from versions.json, whose last fetched copy is kept under {@link McpMappingLoader#BASE_DIR}
+ * and revalidated according to the {@link CachePolicy}. {@link #fetchVersions} does so in the background, handing out the
+ * cached list first so that it shows up straight away.
+ */
 public class VersionFetcher {
+    private static final String VERSIONS_URL = "http://export.mcpbot.bspk.rs/versions.json";
+
+    private final File cacheFile = new File(McpMappingLoader.BASE_DIR, "versions.json");
+    private final File validatorFile = new File(McpMappingLoader.BASE_DIR, "versions.json.info");
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "MMV Version Fetcher");
+            t.setDaemon(true);
+            return t;
+        }
+    });
     private List<String> versions;
 
-    @SuppressWarnings("unchecked")
+    public interface Listener {
+        /**
+         * Called on the fetcher's thread with the versions, newest first: the list from last time or from the cache first, if
+         * there is one, and then again if the server had a newer one.
+         */
+        void versionsFetched(List<String> versions);
+
+        void fetchFailed(IOException e);
+    }
+
     public List<String> getVersions(boolean force) throws IOException {
+        return getVersions(force, CachePolicy.DEFAULT);
+    }
+
+    /**
+     * @param force read the list again instead of returning the one from last time, checking the cached copy with the server
+     *              even if its time to live is not up yet
+     */
+    public synchronized List<String> getVersions(boolean force, CachePolicy cachePolicy) throws IOException {
         if ((versions == null) || force) {
-            final String jsonUrl = "http://export.mcpbot.bspk.rs/versions.json";
-            final URL url = new URL(jsonUrl);
-            final URLConnection connection = url.openConnection();
-            connection.addRequestProperty("User-Agent", "MMV/1.0.0");
-            BufferedReader br = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+            updateCache(force ? cachePolicy.revalidating() : cachePolicy);
+            versions = readCache();
+        }
+        return versions;
+    }
+
+    /**
+     * Fetches the versions in the background, telling {@code listener} about the list it has at hand before asking the
+     * server, which only happens once the cached copy's time to live is up or if {@code force} is set.
+     */
+    public void fetchVersions(final boolean force, final CachePolicy cachePolicy, final Listener listener) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<String> shown;
+                    synchronized (VersionFetcher.this) {
+                        if (versions == null && cacheFile.exists())
+                            try {
+                                versions = readCache();
+                            } catch (IOException e) {
+                                System.err.println("Unable to read the cached version list: " + e);
+                            }
+                        shown = versions;
+                    }
+                    if (shown != null)
+                        listener.versionsFetched(shown);
 
-            Map<String, Object> json = new Gson().fromJson(br, Map.class);
+                    List<String> current;
+                    synchronized (VersionFetcher.this) {
+                        if (updateCache(force ? cachePolicy.revalidating() : cachePolicy) || versions == null)
+                            versions = readCache();
+                        current = versions;
+                    }
+                    if (current != shown)
+                        listener.versionsFetched(current);
+                } catch (IOException e) {
+                    listener.fetchFailed(e);
+                }
+            }
+        });
+    }
 
-            versions = new ArrayList<>();
-            for (String mcVer : json.keySet())
-                for (String channel : ((Map<String, ArrayList<Double>[]>) json.get(mcVer)).keySet())
-                    for (Double ver : ((Map<String, ArrayList<Double>>) json.get(mcVer)).get(channel))
-                        versions.add(mcVer + "_" + channel + "_" + String.format("%.0f", ver));
-            Collections.sort(versions, Collections.reverseOrder(new SplittedNaturalComparator("_")));
+    /**
+     * Streams the cached versions.json into a sorted list of version names. A file that cannot be parsed is deleted, so the
+     * next attempt fetches it again.
+     */
+    private List<String> readCache() throws IOException {
+        List<Version> index = new ArrayList<>();
+        try (JsonReader in = new JsonReader(new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile), StandardCharsets.UTF_8)))) {
+            // { "<mc_ver>": { "<channel>": [<map_ver>, ...], ... }, ... }
+            in.beginObject();
+            while (in.hasNext()) {
+                String mcVersion = in.nextName();
+                int[] mcVersionKey = versionKey(mcVersion);
+                in.beginObject();
+                while (in.hasNext()) {
+                    String channel = in.nextName();
+                    in.beginArray();
+                    while (in.hasNext())
+                        index.add(new Version(mcVersion, mcVersionKey, channel, in.nextLong()));
+                    in.endArray();
+                }
+                in.endObject();
+            }
+            in.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            if (cacheFile.exists() && !cacheFile.delete())
+                System.out.println("Failed to delete cached version list!");
+            throw e instanceof IOException ? (IOException) e : new IOException("Unable to read the version list", e);
+        }
+
+        Collections.sort(index);
+        List<String> names = new ArrayList<>(index.size());
+        for (Version version : index)
+            names.add(version.name);
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * The numbers of a Minecraft version such as 1.12.2, ignoring anything after the digits of each part.
+     */
+    private static int[] versionKey(String mcVersion) {
+        String[] parts = mcVersion.split("\\.");
+        int[] key = new int[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            for (int j = 0; j < parts[i].length() && Character.isDigit(parts[i].charAt(j)) && key[i] < Integer.MAX_VALUE / 10; j++)
+                key[i] = key[i] * 10 + Character.digit(parts[i].charAt(j), 10);
+        return key;
+    }
+
+    /**
+     * Makes sure {@link #cacheFile} is there and as current as the policy asks for, and returns whether it changed.
+     */
+    private boolean updateCache(CachePolicy cachePolicy) throws IOException {
+        if (cacheFile.exists() && (cachePolicy.isOffline() || cachePolicy.isVersionsFresh(cacheFile)))
+            return false;
+        if (cachePolicy.isOffline())
+            throw new FileNotFoundException("The version list is not cached and offline mode is on");
+
+        String[] validator = RemoteZipHandler.loadTextFromFile(validatorFile, new String[0]);
+        HttpDownloader.Text text;
+        try {
+            text = HttpDownloader.fetchText(new URL(VERSIONS_URL), cacheFile.exists() && validator.length > 0 ? validator[0] : null);
+        } catch (IOException e) {
+            if (!cacheFile.exists())
+                throw e;
+            System.err.println("Unable to fetch " + VERSIONS_URL + ", using the cached copy: " + e);
+            return false;
+        }
+
+        if (!McpMappingLoader.BASE_DIR.mkdirs() && !McpMappingLoader.BASE_DIR.isDirectory())
+            throw new IOException("Unable to create " + McpMappingLoader.BASE_DIR);
+
+        if (text.lines != null)
+            write(cacheFile, text.lines);
+        else if (!cacheFile.setLastModified(System.currentTimeMillis())) // still current, so its time to live starts over
+            System.out.println("Failed to touch cached version list!");
+
+        if (text.validator != null)
+            write(validatorFile, new String[]{text.validator});
+        else if (validatorFile.exists() && !validatorFile.delete())
+            System.out.println("Failed to delete version list validator!");
+
+        return text.lines != null;
+    }
+
+    private static void write(File file, String[] lines) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            for (String line : lines)
+                out.println(line);
+        }
+
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * An entry of the version index. Its sort key is worked out once when it is read, instead of splitting and comparing the
+     * names bit by bit on every comparison.
+     */
+    private static final class Version implements Comparable<Version> {
+        private final int[] mcVersion;
+        private final String channel;
+        private final long number;
+        private final String name;
+
+        Version(String mcVersion, int[] mcVersionKey, String channel, long number) {
+            this.mcVersion = mcVersionKey;
+            this.channel = channel;
+            this.number = number;
+            name = mcVersion + "_" + channel + "_" + number;
+        }
+
+        /**
+         * Newest first: by Minecraft version, then channel, then mapping version, all descending.
+         */
+        @Override
+        public int compareTo(Version o) {
+            for (int i = 0; i < Math.min(mcVersion.length, o.mcVersion.length); i++)
+                if (mcVersion[i] != o.mcVersion[i])
+                    return Integer.compare(o.mcVersion[i], mcVersion[i]);
+            if (mcVersion.length != o.mcVersion.length)
+                return o.mcVersion.length - mcVersion.length;
+
+            int c = o.channel.compareTo(channel);
+            if (c == 0)
+                c = Long.compare(o.number, number);
+            return c != 0 ? c : o.name.compareTo(name);
         }
-        return versions;
     }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv.gui;
+
+import bspkrs.mmv.McpMappingLoader;
+import bspkrs.mmv.SrgFile;
+
+import java.lang.ref.SoftReference;
+import java.util.*;
+
+/**
+ * Keeps the loaded mapping versions so switching back to one is instant, up to a heap budget. Each loader is charged its
+ * {@link McpMappingLoader#estimateSize() estimated size}, except that SRG data shared by several versions of one Minecraft
+ * version is only counted once; when the total goes over budget the least recently used versions are evicted, though never
+ * the one just added. Evicted loaders can optionally be kept softly reachable, so they come back
+ * for free until the garbage collector actually needs their memory. A version that is gone entirely is simply loaded again,
+ * which is quick from its mapping snapshot.
+ */
+final class LoaderCache {
+    private final long budget;
+    private final boolean keepEvicted;
+    private final LinkedHashMap<String, Entry> loaders = new LinkedHashMap<>(16, 0.75f, true); // least recently used first
+    private final Map<String, SoftReference<McpMappingLoader>> evicted = new HashMap<>();
+    private final Map<SrgFile, Integer> srgUsers = new IdentityHashMap<>();
+    private long size;
+
+    LoaderCache(long budget, boolean keepEvicted) {
+        this.budget = budget;
+        this.keepEvicted = keepEvicted;
+    }
+
+    /**
+     * Returns the loader for {@code version}, or null if it has to be loaded (again).
+     */
+    synchronized McpMappingLoader get(String version) {
+        Entry entry = loaders.get(version);
+        if (entry != null)
+            return entry.loader;
+
+        SoftReference<McpMappingLoader> ref = evicted.remove(version);
+        McpMappingLoader loader = ref != null ? ref.get() : null;
+        if (loader != null)
+            put(version, loader);
+        return loader;
+    }
+
+    synchronized void put(String version, McpMappingLoader loader) {
+        remove(version);
+
+        Entry entry = new Entry(loader, loader.estimateSize());
+        loaders.put(version, entry);
+        charge(entry);
+
+        evict();
+    }
+
+    /**
+     * Forgets {@code version} and returns its loader, if any was still around.
+     */
+    synchronized McpMappingLoader remove(String version) {
+        Entry entry = loaders.remove(version);
+        if (entry != null) {
+            release(entry);
+            return entry.loader;
+        }
+
+        SoftReference<McpMappingLoader> ref = evicted.remove(version);
+        return ref != null ? ref.get() : null;
+    }
+
+    /**
+     * Returns every loader still in memory, evicted ones included.
+     */
+    synchronized List<McpMappingLoader> loaders() {
+        List<McpMappingLoader> all = new ArrayList<>();
+        for (Entry entry : loaders.values())
+            all.add(entry.loader);
+        for (SoftReference<McpMappingLoader> ref : evicted.values())
+            if (ref.get() != null)
+                all.add(ref.get());
+        return all;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> it = loaders.entrySet().iterator();
+        while (size > budget && loaders.size() > 1) {
+            Map.Entry<String, Entry> eldest = it.next();
+            McpMappingLoader loader = eldest.getValue().loader;
+
+            // its edits are all on disk before it may be collected; the journal reopens if the loader is used again
+            loader.closeEditJournal();
+            if (keepEvicted)
+                evicted.put(eldest.getKey(), new SoftReference<>(loader));
+
+            release(eldest.getValue());
+            it.remove();
+        }
+
+        Iterator<SoftReference<McpMappingLoader>> refs = evicted.values().iterator();
+        while (refs.hasNext())
+            if (refs.next().get() == null)
+                refs.remove();
+    }
+
+    private void charge(Entry entry) {
+        Integer users = srgUsers.get(entry.srg);
+        srgUsers.put(entry.srg, users == null ? 1 : users + 1);
+        size += users == null ? entry.size : entry.size - entry.srgSize;
+    }
+
+    private void release(Entry entry) {
+        int users = srgUsers.remove(entry.srg);
+        if (users > 1)
+            srgUsers.put(entry.srg, users - 1);
+        size -= users > 1 ? entry.size - entry.srgSize : entry.size;
+    }
+
+    private static final class Entry {
+        final McpMappingLoader loader;
+        final long size;
+        final SrgFile srg;
+        final long srgSize;
+
+        Entry(McpMappingLoader loader, long size) {
+            this.loader = loader;
+            this.size = size;
+            srg = loader.getSrgFileData();
+            srgSize = loader.estimateSrgSize();
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package bspkrs.mmv.gui;
 
+import bspkrs.mmv.CachePolicy;
 import bspkrs.mmv.McpMappingLoader;
 import bspkrs.mmv.McpMappingLoader.CantLoadMCPMappingException;
 import bspkrs.mmv.VersionFetcher;
@@ -23,11 +24,10 @@ import bspkrs.mmv.version.AppVersionChecker;
 import immibis.bon.IProgressListener;
 
 import javax.swing.*;
-import javax.swing.event.HyperlinkEvent;
-import javax.swing.event.HyperlinkListener;
-import javax.swing.event.ListSelectionEvent;
-import javax.swing.event.ListSelectionListener;
+import javax.swing.event.*;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
+import javax.swing.text.JTextComponent;
 import java.awt.*;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.*;
@@ -35,6 +35,7 @@ import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.prefs.Preferences;
 
 public class MappingGui extends JFrame {
@@ -45,6 +46,13 @@ public class MappingGui extends JFrame {
     private final static String PREFS_KEY_METHOD_SORT = "methodSort";
     private final static String PREFS_KEY_PARAM_SORT = "paramSort";
     private final static String PREFS_KEY_FIELD_SORT = "fieldSort";
+    private final static String PREFS_KEY_CACHE_BUDGET_MB = "loaderCacheMB";
+    private final static String PREFS_KEY_CACHE_KEEP_EVICTED = "loaderCacheKeepEvicted";
+    private final static String PREFS_KEY_OFFLINE = "offline";
+    private final static String PREFS_KEY_DIGEST_TTL_MINUTES = "digestTtlMinutes";
+    private final static String PREFS_KEY_VERSIONS_TTL_MINUTES = "versionsTtlMinutes";
+    private final static int SEARCH_DELAY = 250; // ms of typing inactivity before a live search starts
+    private final static int COLUMN_SAMPLE_ROWS = 500;
     // @formatter:off
     public static DefaultTableModel classesDefaultModel = new DefaultTableModel(new Object[][]{{},}, new String[]{"Pkg name", "SRG name", "Obf name"}) {
         private static final long serialVersionUID = 1L;
@@ -119,18 +127,23 @@ public class MappingGui extends JFrame {
     private final List<RowSorter.SortKey> methodSort = new ArrayList<>();
     private final List<RowSorter.SortKey> paramSort = new ArrayList<>();
     private final List<RowSorter.SortKey> fieldSort = new ArrayList<>();
-    private final Map<String, McpMappingLoader> mcpInstances = new HashMap<>();
+    // Loaded versions may use up to half the heap unless the "loaderCacheMB" preference says otherwise
+    private final LoaderCache mcpInstances = new LoaderCache(
+            prefs.getLong(PREFS_KEY_CACHE_BUDGET_MB, Runtime.getRuntime().maxMemory() / 2 >> 20) << 20,
+            prefs.getBoolean(PREFS_KEY_CACHE_KEEP_EVICTED, true));
     private final VersionFetcher versionFetcher = new VersionFetcher();
     private final String mcfTopic = "https://www.minecraftforum.net/topic/2115030-";
     private JFrame frmMcpMappingViewer;
     private JButton btnRefreshTables;
     private JComboBox<String> cmbMappingVersion;
     private JCheckBox chkForceRefresh;
+    private JCheckBox chkOffline;
     private JPanel pnlProgress;
     private JProgressBar progressBar;
     private JPanel pnlFilter;
     private JComboBox<String> cmbFilter;
     private JButton btnSearch;
+    private JButton btnSave;
     private JButton btnGetBotCommands;
     private JCheckBox chkClearOnCopy;
     private JTable tblClasses;
@@ -139,6 +152,18 @@ public class MappingGui extends JFrame {
     private JTable tblParams;
     private Thread curTask = null;
     private McpMappingLoader currentLoader;
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "MMV Search");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+    private javax.swing.Timer searchTimer;
+    private Future<?> curSearch = null;
+    private String lastSearchText = null;
+    private int searchGeneration = 0;
     private JSplitPane splitMethods;
     // @formatter:on
 
@@ -233,7 +258,19 @@ public class MappingGui extends JFrame {
         JOptionPane.showMessageDialog(parentComponent, ep, title, messageType);
     }
 
+    /**
+     * Columns are sized whenever the table gets a new model or a cell is edited; large models only have a sample of rows measured.
+     */
+    private static void installColumnAdjuster(JTable table) {
+        TableColumnAdjuster adjuster = new TableColumnAdjuster(table);
+        adjuster.setSampleSize(COLUMN_SAMPLE_ROWS);
+        adjuster.setDynamicAdjustment(true);
+        adjuster.adjustColumns();
+    }
+
     private void savePrefs() {
+        prefs.putBoolean(PREFS_KEY_OFFLINE, chkOffline.isSelected());
+
         for (int i = 0; i < Math.min(cmbFilter.getItemCount(), 20); i++)
             prefs.put(PREFS_KEY_FILTER + i, cmbFilter.getItemAt(i));
 
@@ -242,6 +279,25 @@ public class MappingGui extends JFrame {
         sortRowPrefs(tblParams, PREFS_KEY_PARAM_SORT, tblFields, PREFS_KEY_FIELD_SORT);
     }
 
+    private void showVersions(List<String> versions) {
+        Object selected = cmbMappingVersion.getSelectedItem();
+        cmbMappingVersion.removeAllItems();
+        for (String s : versions)
+            cmbMappingVersion.addItem(s);
+        if (selected != null && versions.contains(selected))
+            cmbMappingVersion.setSelectedItem(selected);
+    }
+
+    /**
+     * The cache policy for the next download: the "Offline" box, with the times to live from the "digestTtlMinutes" and
+     * "versionsTtlMinutes" preferences if they are set.
+     */
+    private CachePolicy cachePolicy() {
+        return new CachePolicy(chkOffline.isSelected(),
+                TimeUnit.MINUTES.toMillis(prefs.getLong(PREFS_KEY_DIGEST_TTL_MINUTES, TimeUnit.MILLISECONDS.toMinutes(CachePolicy.DEFAULT.getDigestTtl()))),
+                TimeUnit.MINUTES.toMillis(prefs.getLong(PREFS_KEY_VERSIONS_TTL_MINUTES, TimeUnit.MILLISECONDS.toMinutes(CachePolicy.DEFAULT.getVersionsTtl()))));
+    }
+
     private void sortRowPrefs(JTable tblClasses, String prefsKeyClassSort, JTable tblMethods, String prefsKeyMethodSort) {
         sortTablePrefs(tblClasses, prefsKeyClassSort);
 
@@ -310,7 +366,13 @@ public class MappingGui extends JFrame {
         }
     }
 
+    private void closeEditJournals() {
+        for (McpMappingLoader loader : mcpInstances.loaders())
+            loader.closeEditJournal();
+    }
+
     public void setCsvFileEdited(boolean bol) {
+        btnSave.setEnabled(bol);
         btnGetBotCommands.setEnabled(bol);
     }
 
@@ -324,6 +386,7 @@ public class MappingGui extends JFrame {
             @Override
             public void windowClosing(WindowEvent arg0) {
                 savePrefs();
+                closeEditJournals();
             }
         });
         frmMcpMappingViewer.setTitle("MCP Mapping Viewer");
@@ -352,6 +415,7 @@ public class MappingGui extends JFrame {
         tblClasses.setAutoCreateRowSorter(true);
         tblClasses.setEnabled(false);
         tblClasses.setModel(classesDefaultModel);
+        installColumnAdjuster(tblClasses);
         tblClasses.setFillsViewportHeight(true);
         tblClasses.setCellSelectionEnabled(true);
         frmMcpMappingViewer.getContentPane().add(splitMain, BorderLayout.CENTER);
@@ -381,6 +445,7 @@ public class MappingGui extends JFrame {
         tblMethods.setAutoCreateRowSorter(true);
         tblMethods.setEnabled(false);
         tblMethods.setModel(methodsDefaultModel);
+        installColumnAdjuster(tblMethods);
         scrlpnMethods.setViewportView(tblMethods);
 
         JScrollPane scrlpnParams = new JScrollPane();
@@ -394,6 +459,7 @@ public class MappingGui extends JFrame {
         tblParams.setAutoCreateRowSorter(true);
         tblParams.setEnabled(false);
         tblParams.setModel(paramsDefaultModel);
+        installColumnAdjuster(tblParams);
         scrlpnParams.setViewportView(tblParams);
 
         SwingUtilities.invokeLater(new Runnable() {
@@ -413,6 +479,7 @@ public class MappingGui extends JFrame {
         tblFields.setAutoCreateRowSorter(true);
         tblFields.setEnabled(false);
         tblFields.setModel(fieldsDefaultModel);
+        installColumnAdjuster(tblFields);
         tblFields.setFillsViewportHeight(true);
         scrlpnFields.setViewportView(tblFields);
 
@@ -438,13 +505,22 @@ public class MappingGui extends JFrame {
         btnGetVersions.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                try {
-                    cmbMappingVersion.removeAllItems();
-                    for (String s : versionFetcher.getVersions(chkForceRefresh.isSelected())) {
-                        cmbMappingVersion.addItem(s);
+                versionFetcher.fetchVersions(chkForceRefresh.isSelected(), cachePolicy(), new VersionFetcher.Listener() {
+                    @Override
+                    public void versionsFetched(final List<String> versions) {
+                        SwingUtilities.invokeLater(new Runnable() {
+                            @Override
+                            public void run() {
+                                showVersions(versions);
+                            }
+                        });
                     }
-                } catch (IOException ignored) {
-                }
+
+                    @Override
+                    public void fetchFailed(IOException ex) {
+                        System.err.println("Unable to get the mapping versions: " + ex);
+                    }
+                });
             }
         });
         pnlControls.add(btnGetVersions);
@@ -458,6 +534,11 @@ public class MappingGui extends JFrame {
         chkForceRefresh.setToolTipText("Force a reload from the MCP conf folder files instead of the session cache.");
         pnlControls.add(chkForceRefresh);
 
+        chkOffline = new JCheckBox("Offline");
+        chkOffline.setToolTipText("Only use versions and mappings downloaded before, without connecting to the MCP servers.");
+        chkOffline.setSelected(prefs.getBoolean(PREFS_KEY_OFFLINE, CachePolicy.DEFAULT.isOffline()));
+        pnlControls.add(chkOffline);
+
         pnlProgress = new JPanel();
         pnlProgress.setVisible(false);
         pnlHeader.add(pnlProgress, BorderLayout.SOUTH);
@@ -497,6 +578,14 @@ public class MappingGui extends JFrame {
                 cmbFilter.getEditor().selectAll();
             }
         });
+        searchTimer = new javax.swing.Timer(SEARCH_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                startSearch(((JTextComponent) cmbFilter.getEditor().getEditorComponent()).getText(), false);
+            }
+        });
+        searchTimer.setRepeats(false);
+        ((JTextComponent) cmbFilter.getEditor().getEditorComponent()).getDocument().addDocumentListener(new FilterTextChanged());
         cmbFilter.getEditor().getEditorComponent().addKeyListener(new KeyAdapter() {
             @Override
             public void keyReleased(KeyEvent e) {
@@ -537,6 +626,18 @@ public class MappingGui extends JFrame {
         separator_1.setOrientation(SwingConstants.VERTICAL);
         pnlFilter.add(separator_1);
 
+        btnSave = new JButton("Save");
+        btnSave.setToolTipText("Writes the edits you have made in the GUI into the mapping CSV files now, instead of once enough of them have piled up.");
+        btnSave.setEnabled(false);
+        btnSave.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                currentLoader.compactEditsLater();
+                btnSave.setEnabled(false);
+            }
+        });
+        pnlFilter.add(btnSave);
+
         btnGetBotCommands = new JButton("Get Command List");
         btnGetBotCommands.setToolTipText("Exports to the system clipboard a listing of MCPBot commands for any edits you have made in the GUI.");
         btnGetBotCommands.setEnabled(false);
@@ -591,6 +692,7 @@ public class MappingGui extends JFrame {
             @Override
             public void windowClosing(WindowEvent e) {
                 savePrefs();
+                closeEditJournals();
             }
         });
 
@@ -673,8 +775,6 @@ public class MappingGui extends JFrame {
                     tblFields.setEnabled(true);
                     tblParams.setModel(paramsDefaultModel);
                     tblParams.setEnabled(true);
-                    new TableColumnAdjuster(tblMethods).adjustColumns();
-                    new TableColumnAdjuster(tblFields).adjustColumns();
                     loadPrefs(true);
                 } else {
                     tblMethods.setModel(methodsDefaultModel);
@@ -704,7 +804,6 @@ public class MappingGui extends JFrame {
                     String name = (String) table.getModel().getValueAt(table.convertRowIndexToModel(i), 1);
                     tblParams.setModel(currentLoader.getParamModel(name));
                     tblParams.setEnabled(true);
-                    new TableColumnAdjuster(tblParams).adjustColumns();
                     loadPrefs(true);
                 } else {
                     tblParams.setModel(paramsDefaultModel);
@@ -714,6 +813,24 @@ public class MappingGui extends JFrame {
         }
     }
 
+    class FilterTextChanged implements DocumentListener {
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+            changedUpdate(e);
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+            changedUpdate(e);
+        }
+
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+            if (currentLoader != null && cmbFilter.isEnabled())
+                searchTimer.restart();
+        }
+    }
+
     class SearchActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
@@ -734,164 +851,103 @@ public class MappingGui extends JFrame {
 
             savePrefs();
 
-            cmbFilter.setEnabled(false);
-            btnSearch.setEnabled(false);
-            pnlProgress.setVisible(true);
-            tblClasses.setModel(classesDefaultModel);
-            tblClasses.setEnabled(false);
-            tblMethods.setModel(methodsDefaultModel);
-            tblMethods.setEnabled(false);
-            tblParams.setModel(paramsDefaultModel);
-            tblParams.setEnabled(false);
-            tblFields.setModel(fieldsDefaultModel);
-            tblFields.setEnabled(false);
-
-            loadPrefs(true);
-
-            curTask = new Thread() {
-                @Override
-                public void run() {
-                    boolean crashed = false;
-
-                    try {
-                        IProgressListener progress = new IProgressListener() {
-                            private String currentText;
-
-                            @Override
-                            public void start(final int max, final String text) {
-                                currentText = text.equals("") ? " " : text;
-                                SwingUtilities.invokeLater(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        progressBar.setString(currentText);
-                                        if (max >= 0)
-                                            progressBar.setMaximum(max);
-                                        progressBar.setValue(0);
-                                    }
-                                });
-                            }
-
-                            @Override
-                            public void set(final int value) {
-                                SwingUtilities.invokeLater(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        progressBar.setValue(value);
-                                    }
-                                });
-                            }
-
-                            @Override
-                            public void set(final int value, final String text) {
-                                currentText = text.equals("") ? " " : text;
-                                SwingUtilities.invokeLater(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        progressBar.setValue(value);
-                                        progressBar.setString(currentText);
-                                    }
-                                });
-                            }
+            searchTimer.stop();
+            lastSearchText = null; // an explicit search always runs, and jumps to the matching member
+            startSearch(filterText != null ? filterText : "", true);
+        }
+    }
 
-                            @Override
-                            public void setMax(final int max) {
-                                SwingUtilities.invokeLater(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        progressBar.setMaximum(max);
-                                    }
-                                });
-                            }
-                        };
+    /**
+     * Runs a search on the search thread, abandoning the one still running. Only the newest search may update the tables.
+     */
+    private void startSearch(final String filterText, final boolean selectMember) {
+        if (currentLoader == null || curTask != null && curTask.isAlive() || filterText.equals(lastSearchText))
+            return;
 
-                        progress.start(0, "Searching MCP objects for input");
-                        tblClasses.setModel(currentLoader.getSearchResults(cmbFilter.getSelectedItem().toString(), progress));
-                        tblClasses.setEnabled(true);
-                        new TableColumnAdjuster(tblClasses).adjustColumns();
-                        loadPrefs(true);
+        lastSearchText = filterText;
+        if (curSearch != null)
+            curSearch.cancel(true);
 
-                        if (tblClasses.getRowCount() > 0) {
-                            String pkg = (String) tblClasses.getModel().getValueAt(0, 0);
-                            String name = (String) tblClasses.getModel().getValueAt(0, 1);
-                            tblMethods.setModel(currentLoader.getMethodModel(pkg + "/" + name));
-                            tblMethods.setEnabled(true);
-                            tblFields.setModel(currentLoader.getFieldModel(pkg + "/" + name));
-                            tblFields.setEnabled(true);
-                            tblParams.setModel(paramsDefaultModel);
-                            tblParams.setEnabled(true);
-                            new TableColumnAdjuster(tblMethods).adjustColumns();
-                            new TableColumnAdjuster(tblFields).adjustColumns();
-                            loadPrefs(true);
-
-                            if (cmbFilter.getSelectedItem().toString().trim().startsWith("field") && tblFields.getRowCount() > 0) {
-                                for (int i = 0; i < tblFields.getRowCount(); i++) {
-                                    if (((String) tblFields.getModel().getValueAt(i, 1)).contains(cmbFilter.getSelectedItem().toString())) {
-                                        final int rowIndex = i;
-                                        tblFields.setRowSelectionInterval(rowIndex, rowIndex);
-                                        tblFields.setColumnSelectionInterval(1, 1);
-                                        tblFields.requestFocus();
-
-                                        SwingUtilities.invokeLater(new Runnable() {
-                                            @Override
-                                            public void run() {
-                                                tblFields.scrollRectToVisible(tblFields.getCellRect(rowIndex, 0, true));
-                                            }
-                                        });
-
-                                        break;
-                                    }
-                                }
-                            } else if (cmbFilter.getSelectedItem().toString().trim().startsWith("func") && tblMethods.getRowCount() > 0) {
-                                for (int i = 0; i < tblMethods.getRowCount(); i++) {
-                                    if (((String) tblMethods.getModel().getValueAt(i, 1)).contains(cmbFilter.getSelectedItem().toString())) {
-                                        final int rowIndex = i;
-                                        tblMethods.setRowSelectionInterval(rowIndex, rowIndex);
-                                        tblMethods.setColumnSelectionInterval(1, 1);
-                                        tblMethods.requestFocus();
-
-                                        SwingUtilities.invokeLater(new Runnable() {
-                                            @Override
-                                            public void run() {
-                                                tblMethods.scrollRectToVisible(tblMethods.getCellRect(rowIndex, 0, true));
-                                            }
-                                        });
-
-                                        break;
-                                    }
-                                }
+        final int generation = ++searchGeneration;
+        final McpMappingLoader loader = currentLoader;
+        curSearch = searchExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final TableModel model = loader.getSearchResults(filterText, null);
 
-                            }
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (generation == searchGeneration && loader == currentLoader)
+                                showSearchResults(model, filterText, selectMember);
                         }
+                    });
+                } catch (CancellationException ignored) {
+                    // superseded by a newer search
+                } catch (Exception e) {
+                    String s = getStackTraceMessage(
+                            "An error has occurred - give bspkrs this stack trace (which has been copied to the clipboard)\n", e);
 
-                        loadPrefs(true);
-                    } catch (Exception e) {
-                        String s = getStackTraceMessage(
-                                "An error has occurred - give bspkrs this stack trace (which has been copied to the clipboard)\n", e);
+                    System.err.println(s);
 
-                        System.err.println(s);
+                    invokeException(s);
+                }
+            }
+        });
+    }
 
-                        crashed = true;
+    private void showSearchResults(TableModel model, String filterText, boolean selectMember) {
+        tblClasses.setModel(model);
+        tblClasses.setEnabled(true);
+        loadPrefs(true);
+
+        if (tblClasses.getRowCount() > 0) {
+            String pkg = (String) tblClasses.getModel().getValueAt(0, 0);
+            String name = (String) tblClasses.getModel().getValueAt(0, 1);
+            tblMethods.setModel(currentLoader.getMethodModel(pkg + "/" + name));
+            tblMethods.setEnabled(true);
+            tblFields.setModel(currentLoader.getFieldModel(pkg + "/" + name));
+            tblFields.setEnabled(true);
+            tblParams.setModel(paramsDefaultModel);
+            tblParams.setEnabled(true);
+            loadPrefs(true);
 
-                        invokeException(s);
-                    } finally {
-                        if (!crashed) {
-                            SwingUtilities.invokeLater(new Runnable() {
-                                @Override
-                                public void run() {
-                                    progressBar.setString(" ");
-                                    progressBar.setValue(0);
-                                    cmbFilter.setEnabled(true);
-                                }
-                            });
-                        }
-                        pnlProgress.setVisible(false);
-                        cmbFilter.setEnabled(true);
-                        btnSearch.setEnabled(true);
+            // Moving the focus away from the filter while the user is typing would swallow keystrokes
+            if (selectMember) {
+                if (filterText.trim().startsWith("field") && tblFields.getRowCount() > 0)
+                    selectMatchingMember(tblFields, filterText);
+                else if (filterText.trim().startsWith("func") && tblMethods.getRowCount() > 0)
+                    selectMatchingMember(tblMethods, filterText);
+            }
+        } else {
+            tblMethods.setModel(methodsDefaultModel);
+            tblMethods.setEnabled(false);
+            tblFields.setModel(fieldsDefaultModel);
+            tblFields.setEnabled(false);
+            tblParams.setModel(paramsDefaultModel);
+            tblParams.setEnabled(false);
+            loadPrefs(true);
+        }
+    }
+
+    private void selectMatchingMember(final JTable table, String filterText) {
+        for (int i = 0; i < table.getRowCount(); i++) {
+            if (((String) table.getModel().getValueAt(i, 1)).contains(filterText)) {
+                final int rowIndex = i;
+                table.setRowSelectionInterval(rowIndex, rowIndex);
+                table.setColumnSelectionInterval(1, 1);
+                table.requestFocus();
+
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        table.scrollRectToVisible(table.getCellRect(rowIndex, 0, true));
                     }
-                }
-            };
+                });
 
-            curTask.start();
+                break;
+            }
         }
     }
 
@@ -904,6 +960,11 @@ public class MappingGui extends JFrame {
             final String mappingVersion = (String) cmbMappingVersion.getSelectedItem();
             savePrefs();
 
+            searchTimer.stop();
+            if (curSearch != null)
+                curSearch.cancel(true);
+            lastSearchText = null;
+
             pnlFilter.setVisible(false);
             pnlProgress.setVisible(true);
             tblClasses.setModel(classesDefaultModel);
@@ -973,17 +1034,21 @@ public class MappingGui extends JFrame {
                             }
                         };
 
-                        if (!mcpInstances.containsKey(mappingVersion) || chkForceRefresh.isSelected()) {
+                        McpMappingLoader cached = chkForceRefresh.isSelected() ? null : mcpInstances.get(mappingVersion);
+                        if (cached == null) {
                             progress.start(0, "Reading MCP configuration");
-                            currentLoader = new McpMappingLoader(MappingGui.this, mappingVersion, progress);
+                            McpMappingLoader replaced = mcpInstances.remove(mappingVersion);
+                            if (replaced != null)
+                                replaced.closeEditJournal(); // the new loader replays it
+                            CachePolicy cachePolicy = chkForceRefresh.isSelected() ? cachePolicy().revalidating() : cachePolicy();
+                            currentLoader = new McpMappingLoader(MappingGui.this, mappingVersion, cachePolicy, progress);
                             mcpInstances.put(mappingVersion, currentLoader);
                             chkForceRefresh.setSelected(false);
                         } else
-                            currentLoader = mcpInstances.get(mappingVersion);
+                            currentLoader = cached;
 
                         tblClasses.setModel(currentLoader.getClassModel());
                         tblClasses.setEnabled(true);
-                        new TableColumnAdjuster(tblClasses).adjustColumns();
                         loadPrefs(true);
                     } catch (CantLoadMCPMappingException e) {
                         String s = getStackTraceMessage("", e);
@@ -1026,7 +1091,7 @@ public class MappingGui extends JFrame {
                         pnlFilter.setVisible(true);
                         cmbFilter.setEnabled(true);
                         btnSearch.setEnabled(true);
-                        //                        btnSave.setEnabled(currentLoader.hasPendingEdits());
+                        btnSave.setEnabled(currentLoader.hasPendingEdits());
                         btnGetBotCommands.setEnabled(currentLoader.hasPendingCommands());
                     }
                 }
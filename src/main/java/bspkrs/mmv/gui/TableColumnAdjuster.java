@@ -15,8 +15,10 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /*
  *	Class to manage the widths of colunmns in a table.
@@ -40,7 +42,9 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
     private boolean isColumnDataIncluded;
     private boolean isOnlyAdjustLarger;
     private boolean isDynamicAdjustment;
+    private int sampleSize;
     private final Map<TableColumn, Integer> columnSizes = new HashMap<>();
+    private final Map<TableModel, int[]> dataWidths = new WeakHashMap<>();                    // model -> data width by model column, -1 if unknown
 
     /*
      *  Specify the table and use default spacing
@@ -83,7 +87,7 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
             return;
 
         int columnHeaderWidth = getColumnHeaderWidth(column);
-        int columnDataWidth = getColumnDataWidth(column);
+        int columnDataWidth = getCachedColumnDataWidth(column);
         int preferredWidth = Math.max(columnHeaderWidth, columnDataWidth);
 
         updateTableColumn(column, preferredWidth);
@@ -108,9 +112,40 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
         return c.getPreferredSize().width;
     }
 
+    /*
+     *  Get the data width of the column for the current model, measuring it
+     *  only if it is not known yet.
+     */
+    private int getCachedColumnDataWidth(int column) {
+        if (!isColumnDataIncluded)
+            return 0;
+
+        int[] widths = getDataWidths(table.getModel());
+        int modelColumn = table.convertColumnIndexToModel(column);
+
+        if (widths[modelColumn] < 0)
+            widths[modelColumn] = getColumnDataWidth(column);
+
+        return widths[modelColumn];
+    }
+
+    private int[] getDataWidths(TableModel model) {
+        int[] widths = dataWidths.get(model);
+
+        if (widths == null || widths.length != model.getColumnCount()) {
+            widths = new int[model.getColumnCount()];
+            Arrays.fill(widths, -1);
+            dataWidths.put(model, widths);
+        }
+
+        return widths;
+    }
+
     /*
      *  Calculate the width based on the widest cell renderer for the
-     *  given column.
+     *  given column. With a sample size set, large tables only have an
+     *  evenly spread sample of rows measured, plus the row holding the
+     *  longest value if the model can tell.
      */
     private int getColumnDataWidth(int column) {
         if (!isColumnDataIncluded)
@@ -118,8 +153,17 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
 
         int preferredWidth = 0;
         int maxWidth = table.getColumnModel().getColumn(column).getMaxWidth();
+        int rowCount = table.getModel().getRowCount();
+        int step = sampleSize > 0 && rowCount > sampleSize ? rowCount / sampleSize : 1;
+
+        if (step > 1 && table.getModel() instanceof LongestValueModel) {
+            int row = ((LongestValueModel) table.getModel()).getRowOfLongestValue(table.convertColumnIndexToModel(column));
 
-        for (int row = 0; row < table.getRowCount(); row++) {
+            if (row >= 0 && row < rowCount)
+                preferredWidth = getCellDataWidth(row, column);
+        }
+
+        for (int row = 0; row < rowCount; row += step) {
             preferredWidth = Math.max(preferredWidth, getCellDataWidth(row, column));
 
             //  We've exceeded the maximum width, no need to check other rows
@@ -132,13 +176,16 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
     }
 
     /*
-     *  Get the preferred width for the specified cell
+     *  Get the preferred width for the specified cell. The row is a model
+     *  row, so the result does not depend on how the table is sorted.
      */
     private int getCellDataWidth(int row, int column) {
         //  Inovke the renderer for the cell to calculate the preferred width
 
-        TableCellRenderer cellRenderer = table.getCellRenderer(row, column);
-        Component c = table.prepareRenderer(cellRenderer, row, column);
+        TableModel model = table.getModel();
+        Object value = model.getValueAt(row, table.convertColumnIndexToModel(column));
+        TableCellRenderer cellRenderer = table.getCellRenderer(0, column);
+        Component c = cellRenderer.getTableCellRendererComponent(table, value, false, false, row, column);
 
         return c.getPreferredSize().width + table.getIntercellSpacing().width;
     }
@@ -189,6 +236,13 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
         }
     }
 
+    /*
+     *	Limits how many rows are measured per column; 0 measures every row
+     */
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
     /*
      *	Indicates whether to include the header in the width calculation
      */
@@ -258,9 +312,13 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
 
         //  A cell has been updated
 
-        if (e.getType() == TableModelEvent.UPDATE) {
+        if (e.getType() == TableModelEvent.UPDATE && e.getColumn() != TableModelEvent.ALL_COLUMNS
+                && e.getFirstRow() == e.getLastRow() && e.getFirstRow() >= 0) {
             int column = table.convertColumnIndexToView(e.getColumn());
 
+            if (column < 0)
+                return;
+
             //  Only need to worry about an increase in width for this cell
 
             if (isOnlyAdjustLarger) {
@@ -269,6 +327,11 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
 
                 if (tableColumn.getResizable()) {
                     int width = getCellDataWidth(row, column);
+                    int[] widths = getDataWidths(table.getModel());
+
+                    if (widths[e.getColumn()] >= 0)
+                        widths[e.getColumn()] = Math.max(widths[e.getColumn()], width);
+
                     updateTableColumn(column, width);
                 }
             }
@@ -276,17 +339,27 @@ public class TableColumnAdjuster implements PropertyChangeListener, TableModelLi
             //	Could be an increase of decrease so check all rows
 
             else {
+                getDataWidths(table.getModel())[e.getColumn()] = -1;
                 adjustColumn(column);
             }
         }
 
-        //  The update affected more than one column so adjust all columns
+        //  The update affected more than one cell so adjust all columns
 
         else {
+            dataWidths.remove(table.getModel());
             adjustColumns();
         }
     }
 
+    /*
+     *  Implemented by models that know which row holds the longest value of a
+     *  column, so sampling does not miss it.
+     */
+    public interface LongestValueModel {
+        int getRowOfLongestValue(int column);
+    }
+
     /*
      *  Install Actions to give user control of certain functionality.
      */
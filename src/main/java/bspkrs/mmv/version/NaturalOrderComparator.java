@@ -22,6 +22,7 @@ misrepresented as being the original software.
 3. This notice may not be removed or altered from any source distribution.
 
 changes by bspkrs: cleaned up Java compiler warnings
+further changes: compareRight() scans both strings in place instead of copying their tails with substring()
 */
 package bspkrs.mmv.version;
 
@@ -36,10 +37,8 @@ public class NaturalOrderComparator implements Comparator<Object> {
         }
     }
 
-    int compareRight(String a, String b) {
+    int compareRight(String a, int ia, String b, int ib) {
         int bias = 0;
-        int ia = 0;
-        int ib = 0;
 
         // The longest run of digits wins. That aside, the greatest
         // value wins, but we can't know that it will until we've scanned
@@ -110,7 +109,7 @@ public class NaturalOrderComparator implements Comparator<Object> {
 
             // process run of digits
             if (Character.isDigit(ca) && Character.isDigit(cb)) {
-                if ((result = compareRight(a.substring(ia), b.substring(ib))) != 0) {
+                if ((result = compareRight(a, ia, b, ib)) != 0) {
                     return result;
                 }
             }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv.version;
+
+import java.util.*;
+
+/**
+ * A string split once into text and numbers, so that it can be compared in natural order again and again without being
+ * scanned each time. Keys sort the way {@link NaturalOrderComparator} sorts their strings: spaces are ignored, numbers compare
+ * by value whatever their leading zeros, and strings that only differ in those zeros sort by how many trail the string.
+ * <p>
+ * Nothing in the viewer sorts lists in this order at the moment: the version list has its own key in {@link
+ * bspkrs.mmv.VersionFetcher}, the tables sort with their row sorters' collator, and {@link AppVersionChecker} compares a single
+ * pair. {@link #sort} and {@link #cachingComparator()} are here for code that does, and are measured by NaturalSortBenchmark.
+ */
+public final class NaturalSortKey implements Comparable<NaturalSortKey> {
+    private final String string;
+    private final char[] chars;    // the string without spaces and leading zeros
+    private final int[] numbers;   // start and length in chars of each number, in order
+    private final int trailingZeros;
+
+    public NaturalSortKey(String string) {
+        this.string = string;
+
+        int length = string.length();
+        char[] chars = new char[length];
+        int[] numbers = new int[8];
+        int n = 0, count = 0;
+        for (int i = 0; i < length; ) {
+            char c = string.charAt(i);
+            if (Character.isDigit(c)) {
+                int end = i + 1;
+                while (end < length && Character.isDigit(string.charAt(end)))
+                    end++;
+                while (i < end && string.charAt(i) == '0')
+                    i++;
+
+                // a number that is all zeros is skipped over entirely
+                if (i < end) {
+                    if (count * 2 == numbers.length)
+                        numbers = Arrays.copyOf(numbers, numbers.length * 2);
+                    numbers[count * 2] = n;
+                    numbers[count * 2 + 1] = end - i;
+                    count++;
+                    string.getChars(i, end, chars, n);
+                    n += end - i;
+                }
+                i = end;
+            } else {
+                if (!Character.isSpaceChar(c))
+                    chars[n++] = c;
+                i++;
+            }
+        }
+        this.chars = n == length ? chars : Arrays.copyOf(chars, n);
+        this.numbers = Arrays.copyOf(numbers, count * 2);
+
+        int zeros = 0;
+        while (zeros < length && string.charAt(length - 1 - zeros) == '0')
+            zeros++;
+        trailingZeros = zeros;
+    }
+
+    /**
+     * Sorts {@code list} in the natural order of its elements' {@code toString()}, working out the key of each element once.
+     * This is the cheapest way to sort a list that has no keys yet; the sort is stable.
+     */
+    public static <T> void sort(List<T> list) {
+        Keyed[] keyed = new Keyed[list.size()];
+        int i = 0;
+        for (T element : list)
+            keyed[i++] = new Keyed(new NaturalSortKey(element.toString()), element);
+        Arrays.sort(keyed);
+
+        ListIterator<T> it = list.listIterator();
+        for (Keyed k : keyed) {
+            it.next();
+            @SuppressWarnings("unchecked")
+            T element = (T) k.element;
+            it.set(element);
+        }
+    }
+
+    /**
+     * Returns a comparator that sorts objects in the natural order of their {@code toString()}, like a
+     * {@link NaturalOrderComparator}, but only works out the key of each distinct string once. Looking the keys up costs about
+     * as much as scanning short strings again, so it pays off for long strings with long common prefixes, such as paths, or
+     * where only a comparator will do. The keys are kept for as long as the comparator is, so it is meant for one sort or one
+     * table column rather than as a constant. It is not thread safe.
+     */
+    public static Comparator<Object> cachingComparator() {
+        return new Comparator<Object>() {
+            private final Map<String, NaturalSortKey> keys = new HashMap<>();
+
+            @Override
+            public int compare(Object o1, Object o2) {
+                return key(o1.toString()).compareTo(key(o2.toString()));
+            }
+
+            private NaturalSortKey key(String s) {
+                NaturalSortKey key = keys.get(s);
+                if (key == null) {
+                    key = new NaturalSortKey(s);
+                    keys.put(s, key);
+                }
+                return key;
+            }
+        };
+    }
+
+    @Override
+    public int compareTo(NaturalSortKey o) {
+        int i = 0, j = 0, ni = 0, nj = 0;
+        while (true) {
+            if (i == chars.length || j == o.chars.length) {
+                if (i == chars.length && j == o.chars.length)
+                    return trailingZeros - o.trailingZeros;
+                return i == chars.length ? -1 : +1;
+            }
+
+            if (ni < numbers.length && numbers[ni] == i && nj < o.numbers.length && o.numbers[nj] == j) {
+                // the longer number is the greater one, otherwise the first digit that differs decides
+                int la = numbers[ni + 1];
+                int lb = o.numbers[nj + 1];
+                if (la != lb)
+                    return la < lb ? -1 : +1;
+                for (int k = 0; k < la; k++)
+                    if (chars[i + k] != o.chars[j + k])
+                        return chars[i + k] < o.chars[j + k] ? -1 : +1;
+
+                i += la;
+                j += lb;
+                ni += 2;
+                nj += 2;
+            } else {
+                // a number against text compares its first digit, which never equals a text character
+                if (chars[i] != o.chars[j])
+                    return chars[i] < o.chars[j] ? -1 : +1;
+                i++;
+                j++;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return string;
+    }
+
+    private static final class Keyed implements Comparable<Keyed> {
+        final NaturalSortKey key;
+        final Object element;
+
+        Keyed(NaturalSortKey key, Object element) {
+            this.key = key;
+            this.element = element;
+        }
+
+        @Override
+        public int compareTo(Keyed o) {
+            return key.compareTo(o.key);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CsvFileWriterTest {
+    private static MappingFixture fixture;
+
+    private File dir;
+    private File csv;
+    private byte[] original;
+
+    @BeforeClass
+    public static void createFixture() throws IOException {
+        fixture = MappingFixture.create(50);
+    }
+
+    @AfterClass
+    public static void deleteFixture() throws IOException {
+        fixture.delete();
+    }
+
+    @Before
+    public void copyCsv() throws IOException {
+        dir = Files.createTempDirectory("mmv-test").toFile();
+        csv = new File(dir, "methods.csv");
+        Files.copy(fixture.file("methods.csv").toPath(), csv.toPath());
+        original = Files.readAllBytes(csv.toPath());
+    }
+
+    @After
+    public void deleteDir() {
+        for (File file : dir.listFiles())
+            file.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void commitReplacesTheFileAndBacksUpTheOld() throws IOException {
+        CsvFile methods = new CsvFile(csv);
+        CsvData row = methods.getCsvData().iterator().next();
+        methods.updateCsvDataForKey(row.getSrgName(), new CsvData(row.getSrgName(), "renamed", row.getSide(), row.getComment(), row.needsQuoted()));
+        methods.writeToFile();
+
+        assertEquals("renamed", new CsvFile(csv).getCsvDataForKey(row.getSrgName()).getMcpName());
+        assertFalse(new File(dir, "methods.csv.tmp").exists());
+
+        File[] backups = backups();
+        assertEquals(1, backups.length);
+        assertArrayEquals(original, Files.readAllBytes(backups[0].toPath()));
+    }
+
+    @Test
+    public void closeWithoutCommitLeavesTheFileAlone() throws IOException {
+        try (CsvFileWriter out = new CsvFileWriter(csv)) {
+            out.println("searge,name,side,desc");
+            out.println("func_1_a,halfWritten,0,");
+        }
+
+        assertArrayEquals(original, Files.readAllBytes(csv.toPath()));
+        assertFalse(new File(dir, "methods.csv.tmp").exists());
+        assertEquals(0, backups().length);
+    }
+
+    @Test
+    public void commitKeepsOnlyTheNewestBackups() throws IOException {
+        for (int i = 1; i <= 7; i++)
+            Files.write(new File(dir, "methods.csv_2001010" + i + "_120000.bak").toPath(), new byte[]{(byte) i});
+
+        try (CsvFileWriter out = new CsvFileWriter(csv)) {
+            out.println("searge,name,side,desc");
+            out.commit();
+        }
+
+        File[] backups = backups();
+        assertEquals(CsvFileWriter.MAX_BACKUPS, backups.length);
+        assertEquals("methods.csv_20010104_120000.bak", backups[0].getName());
+        assertArrayEquals(original, Files.readAllBytes(backups[backups.length - 1].toPath()));
+    }
+
+    /**
+     * The backups of the CSV, oldest first.
+     */
+    private File[] backups() {
+        File[] backups = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File d, String name) {
+                return name.startsWith("methods.csv_") && name.endsWith(".bak");
+            }
+        });
+        Arrays.sort(backups);
+        return backups;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import bspkrs.mmv.McpBotCommand.MemberType;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class EditJournalTest {
+    private static MappingFixture fixture;
+    private static List<CsvData> methods;
+    private static List<CsvData> fields;
+    private static List<ParamCsvData> params;
+
+    @BeforeClass
+    public static void createFixture() throws IOException {
+        fixture = MappingFixture.create(50);
+        methods = new ArrayList<>(new CsvFile(fixture.file("methods.csv")).getCsvData());
+        fields = new ArrayList<>(new CsvFile(fixture.file("fields.csv")).getCsvData());
+        params = new ArrayList<>(new ParamCsvFile(fixture.file("params.csv")).getCsvData());
+    }
+
+    @AfterClass
+    public static void deleteFixture() throws IOException {
+        fixture.delete();
+    }
+
+    @Test
+    public void replaysEditsInOrder() throws IOException {
+        File file = fixture.file("order.journal");
+        List<String> expected = new ArrayList<>();
+        try (EditJournal journal = new EditJournal(file)) {
+            for (int i = 0; i < 40; i++) {
+                // the fixture's comments include commas and quotes, which have to survive the trip
+                CsvData method = methods.get(i);
+                CsvData field = fields.get(i);
+                ParamCsvData param = params.get(i);
+                journal.append(MemberType.METHOD, new CsvData(method.getSrgName(), "method" + i, method.getSide(), method.getComment(), method.needsQuoted()).toCsv());
+                journal.append(MemberType.FIELD, new CsvData(field.getSrgName(), "field" + i, field.getSide(), field.getComment(), field.needsQuoted()).toCsv());
+                journal.append(MemberType.PARAM, new ParamCsvData(param.getSrgName(), "param" + i, param.getSide()).toCsv());
+                expected.add("METHOD " + method.getSrgName() + " method" + i + " " + method.getComment());
+                expected.add("FIELD " + field.getSrgName() + " field" + i + " " + field.getComment());
+                expected.add("PARAM " + param.getSrgName() + " param" + i + " ");
+            }
+        }
+
+        assertEquals(expected, replay(file));
+    }
+
+    @Test
+    public void ignoresALineCutShort() throws IOException {
+        File file = fixture.file("truncated.journal");
+        CsvData method = methods.get(0);
+        try (EditJournal journal = new EditJournal(file)) {
+            journal.append(MemberType.METHOD, new CsvData(method.getSrgName(), "renamed", method.getSide(), "").toCsv());
+        }
+        try (FileWriter out = new FileWriter(file, true)) {
+            out.write("METHOD," + methods.get(1).getSrgName() + ",cut");
+        }
+
+        assertEquals(Collections.singletonList("METHOD " + method.getSrgName() + " renamed "), replay(file));
+    }
+
+    @Test
+    public void clearStartsOver() throws IOException {
+        File file = fixture.file("clear.journal");
+        ParamCsvData param = params.get(0);
+        try (EditJournal journal = new EditJournal(file)) {
+            journal.append(MemberType.PARAM, new ParamCsvData(param.getSrgName(), "before", param.getSide()).toCsv());
+            journal.sync();
+            assertTrue(journal.length() > 0);
+
+            journal.clear();
+            assertFalse(file.exists());
+            assertEquals(0, journal.length());
+            assertTrue(replay(file).isEmpty());
+
+            journal.append(MemberType.PARAM, new ParamCsvData(param.getSrgName(), "after", param.getSide()).toCsv());
+        }
+
+        assertEquals(Collections.singletonList("PARAM " + param.getSrgName() + " after "), replay(file));
+    }
+
+    @Test
+    public void compactLaterRunsOnTheJournalThreadOneAtATime() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        final AtomicInteger runs = new AtomicInteger();
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        Callable<Void> compaction = new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+                threads.add(Thread.currentThread().getName());
+                runs.incrementAndGet();
+                release.await();
+                done.countDown();
+                return null;
+            }
+        };
+
+        try (EditJournal journal = new EditJournal(fixture.file("compact.journal"))) {
+            journal.compactLater(compaction);
+            journal.compactLater(compaction); // dropped, the first one is still queued
+            release.countDown();
+
+            // once the first has finished, another can be queued; calls made before then are dropped as well
+            long deadline = System.currentTimeMillis() + 10000;
+            while (runs.get() < 2 && System.currentTimeMillis() < deadline) {
+                journal.compactLater(compaction);
+                Thread.sleep(10);
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(2, runs.get());
+        assertEquals(Collections.nCopies(2, "MMV Journal"), threads);
+    }
+
+    private static List<String> replay(File file) throws IOException {
+        final List<String> edits = new ArrayList<>();
+        new EditJournal(file).replay(new EditJournal.Replay() {
+            @Override
+            public void edit(MemberType type, String srgName, String mcpName, String comment) {
+                edits.add(type + " " + srgName + " " + mcpName + " " + comment);
+            }
+        });
+        return edits;
+    }
+}
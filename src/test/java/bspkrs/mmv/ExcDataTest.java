@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks {@link DescriptorParser} and {@link ExcData#getSrgId} against the regular expressions they replaced.
+ */
+public class ExcDataTest {
+    private static final String[] DESCRIPTORS = {
+            "()V", "()I", "(I)V", "(IJD)Z", "(ZBCSIFDJ)V", "(JJ)J",
+            "([I)V", "([[I)V", "([[[D)V", "([Z[B)[C", "(I[JD)V",
+            "(Ljava/lang/String;)V", "(Ljava/lang/String;I)Ljava/lang/Object;", "(Lnet/minecraft/a/B;ILnet/minecraft/c/D;)V",
+            "([Ljava/lang/Object;)V", "([[Ljava/lang/String;I)V", "([[[Lnet/minecraft/a/B;[J)V",
+            "(Ljava/lang/String;ILjava/lang/String;I)V",
+            "I", "[[D", "Ljava/lang/String;", "", "(L;I)V", "(Lfoo)V", "([)V", "(V)V", "(Q[Q)V", "(I)(J)V"
+    };
+
+    private static final String[] SRG_NAMES = {
+            "func_123_a", "func_1_b", "func_i123_a", "func_123456_ab", "values", "valueOf", "", "func_", "func__a", "func_123",
+            "func_i_a", "func_ii1_a", "func_abc_123_a", "func_x_func_12_a", "func_1_func_2_", "afunc_12_b", "field_123_a",
+            "p_123_1_", "func_0_"
+    };
+
+    @Test
+    public void splitMethodDescMatchesRegex() {
+        for (String desc : DESCRIPTORS)
+            assertArrayEquals(desc, regexSplitMethodDesc(desc), ExcData.splitMethodDesc(desc));
+    }
+
+    @Test
+    public void splitMethodDescMatchesRegexOnRandomDescriptors() {
+        Random random = new Random(42);
+        String alphabet = "[[[LLZBCSIFDJV;;a/";
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder("(");
+            for (int n = random.nextInt(12); n > 0; n--)
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            String desc = sb.append(")V").toString();
+            assertArrayEquals(desc, regexSplitMethodDesc(desc), ExcData.splitMethodDesc(desc));
+        }
+    }
+
+    @Test
+    public void getSrgIdMatchesRegex() {
+        for (String srgName : SRG_NAMES)
+            assertEquals(srgName, regexGetSrgId(srgName), ExcData.getSrgId(srgName));
+    }
+
+    @Test
+    public void getSrgIdMatchesRegexOnRandomNames() {
+        Random random = new Random(42);
+        String alphabet = "func_i0123_ab";
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int n = random.nextInt(16); n > 0; n--)
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            String srgName = (random.nextBoolean() ? "func_" : "") + sb;
+            assertEquals(srgName, regexGetSrgId(srgName), ExcData.getSrgId(srgName));
+        }
+    }
+
+    @Test
+    public void generatedParametersMatchRegex() {
+        for (String srgName : SRG_NAMES)
+            for (String desc : DESCRIPTORS)
+                for (boolean isStatic : new boolean[]{false, true})
+                    assertArrayEquals(srgName + desc, ExcData.genParamNames(regexGetSrgId(srgName), regexSplitMethodDesc(desc), isStatic),
+                            new ExcData("Owner", srgName, desc, new String[0], isStatic).getParameters());
+    }
+
+    /**
+     * ExcData.splitMethodDesc as it was before {@link DescriptorParser}.
+     */
+    private static String[] regexSplitMethodDesc(String desc) {
+        //\[*L[^;]+;|\[[ZBCSIFDJ]|[ZBCSIFDJ]
+        int beginIndex = desc.indexOf('(');
+        int endIndex = desc.lastIndexOf(')');
+        if (((beginIndex == -1) && (endIndex != -1)) || ((beginIndex != -1) && (endIndex == -1))) {
+            System.err.println(beginIndex);
+            System.err.println(endIndex);
+            throw new RuntimeException();
+        }
+        String x0;
+        if ((beginIndex == -1) && (endIndex == -1)) {
+            x0 = desc;
+        } else {
+            x0 = desc.substring(beginIndex + 1, endIndex);
+        }
+        Pattern pattern = Pattern.compile("\\[*L[^;]+;|\\[[ZBCSIFDJ]|[ZBCSIFDJ]");
+        Matcher matcher = pattern.matcher(x0);
+
+        ArrayList<String> listMatches = new ArrayList<>();
+
+        while (matcher.find()) {
+            listMatches.add(matcher.group());
+        }
+
+        return listMatches.toArray(new String[0]);
+    }
+
+    /**
+     * ExcData.getSrgId as it was before it stopped using a regular expression.
+     */
+    private static String regexGetSrgId(String srgName) {
+        Pattern pattern = Pattern.compile("func_(i?[0-9]+)_");
+        Matcher matcher = pattern.matcher(srgName);
+        if (matcher.find())
+            return matcher.group(1);
+        return srgName;
+    }
+}
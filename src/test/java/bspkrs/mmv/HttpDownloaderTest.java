@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HttpDownloaderTest {
+    private static final String DIGEST_TYPE = "SHA-1";
+    private static final String VERSION = "v1";
+
+    private HttpServer server;
+    private File dir;
+    private File target;
+
+    // what the server currently has, and how it answers range requests
+    private byte[] content;
+    private String etag;
+    private boolean supportsRanges = true;
+    private boolean honorsIfRange = true;
+    private final List<String> statuses = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void startServer() throws IOException {
+        content = new byte[200 * 1024];
+        new Random(42).nextBytes(content);
+        etag = "\"a\"";
+
+        dir = Files.createTempDirectory("mmv-test").toFile();
+        target = new File(dir, "mappings.zip");
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/mappings.zip", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serveFile(exchange);
+            }
+        });
+        server.createContext("/mappings.zip.sha1", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serveDigest(exchange);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        for (File file : dir.listFiles())
+            file.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void resumesWithPartialContent() throws Exception {
+        writePart(Arrays.copyOf(content, 50 * 1024), etag);
+
+        assertEquals(sha1(content), downloader().download(target, VERSION));
+        assertEquals(Arrays.asList("206"), statuses);
+        assertContent();
+    }
+
+    @Test
+    public void restartsWhenServerSendsWholeFile() throws Exception {
+        supportsRanges = false;
+        writePart(Arrays.copyOf(content, 50 * 1024), etag);
+
+        assertEquals(sha1(content), downloader().download(target, VERSION));
+        assertEquals(Arrays.asList("200"), statuses);
+        assertContent();
+    }
+
+    @Test
+    public void restartsWhenFileChanged() throws Exception {
+        writePart(Arrays.copyOf(content, 50 * 1024), etag);
+        content[0]++;
+        etag = "\"b\"";
+
+        assertEquals(sha1(content), downloader().download(target, VERSION));
+        assertEquals(Arrays.asList("200"), statuses);
+        assertContent();
+    }
+
+    @Test
+    public void finishesFromPartFileWhenRangeNotSatisfiable() throws Exception {
+        writePart(content, etag);
+
+        assertEquals(sha1(content), downloader().download(target, VERSION));
+        assertEquals(Arrays.asList("416"), statuses);
+        assertContent();
+    }
+
+    @Test
+    public void restartsWhenRangeNotSatisfiableForAnotherFile() throws Exception {
+        honorsIfRange = false;
+        writePart(content, etag);
+        content = Arrays.copyOf(content, 100 * 1024);
+        etag = "\"b\"";
+
+        assertEquals(sha1(content), downloader().download(target, VERSION));
+        assertEquals(Arrays.asList("416", "200"), statuses);
+        assertContent();
+    }
+
+    @Test
+    public void revalidatesText() throws Exception {
+        URL url = url("/mappings.zip.sha1");
+
+        HttpDownloader.Text first = HttpDownloader.fetchText(url, null);
+        assertArrayEquals(new String[]{sha1(content)}, first.lines);
+        assertEquals(etag, first.validator);
+
+        HttpDownloader.Text unchanged = HttpDownloader.fetchText(url, first.validator);
+        assertNull(unchanged.lines);
+        assertEquals(etag, unchanged.validator);
+
+        content[0]++;
+        etag = "\"b\"";
+        HttpDownloader.Text changed = HttpDownloader.fetchText(url, first.validator);
+        assertArrayEquals(new String[]{sha1(content)}, changed.lines);
+        assertEquals(etag, changed.validator);
+        assertEquals(Arrays.asList("200", "304", "200"), statuses);
+    }
+
+    private HttpDownloader downloader() throws IOException {
+        return new HttpDownloader(url("/mappings.zip"), DIGEST_TYPE, null);
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    /**
+     * Leaves the files an interrupted download of {@code bytes} would have.
+     */
+    private void writePart(byte[] bytes, String validator) throws IOException {
+        Files.write(new File(dir, target.getName() + ".part").toPath(), bytes);
+        try (PrintWriter out = new PrintWriter(new File(dir, target.getName() + ".part.info"))) {
+            out.println(VERSION);
+            out.println(validator);
+        }
+    }
+
+    private void assertContent() throws IOException {
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertFalse(new File(dir, target.getName() + ".part").exists());
+        assertFalse(new File(dir, target.getName() + ".part.info").exists());
+    }
+
+    private static String sha1(byte[] bytes) throws Exception {
+        return RemoteZipHandler.toHex(MessageDigest.getInstance(DIGEST_TYPE).digest(bytes));
+    }
+
+    private void serveFile(HttpExchange exchange) throws IOException {
+        Headers request = exchange.getRequestHeaders();
+        String range = request.getFirst("Range");
+        String ifRange = request.getFirst("If-Range");
+        exchange.getResponseHeaders().add("ETag", etag);
+
+        if (supportsRanges && range != null && (!honorsIfRange || ifRange == null || ifRange.equals(etag))) {
+            int start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+            if (start >= content.length) {
+                exchange.getResponseHeaders().add("Content-Range", "bytes */" + content.length);
+                respond(exchange, 416, null);
+            } else {
+                exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + (content.length - 1) + "/" + content.length);
+                respond(exchange, 206, Arrays.copyOfRange(content, start, content.length));
+            }
+        } else
+            respond(exchange, 200, content);
+    }
+
+    private void serveDigest(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("ETag", etag);
+        try {
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+                respond(exchange, 304, null);
+            else
+                respond(exchange, 200, sha1(content).getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        statuses.add(String.valueOf(status));
+        exchange.sendResponseHeaders(status, body != null ? body.length : -1);
+        if (body != null)
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        exchange.close();
+    }
+}
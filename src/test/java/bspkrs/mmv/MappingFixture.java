@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import immibis.bon.IProgressListener;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a synthetic but realistically shaped set of MCP mappings, in both the old (joined.srg/joined.exc) and the new
+ * (config/joined.tsrg) layout, so the tests and benchmarks run offline and always against the same data. The CSVs sit next to them as
+ * they would in an extracted mapping zip. Output only depends on the class count.
+ */
+final class MappingFixture {
+    /**
+     * Roughly the size of a 1.12 mapping set.
+     */
+    static final int DEFAULT_CLASSES = 5000;
+
+    static final IProgressListener NO_PROGRESS = new IProgressListener() {
+        @Override
+        public void start(int max, String text) {
+        }
+
+        @Override
+        public void set(int value) {
+        }
+
+        @Override
+        public void set(int value, String text) {
+        }
+
+        @Override
+        public void setMax(int max) {
+        }
+    };
+
+    private static final String[] PRIMITIVES = {"I", "J", "D", "Z", "F", "B", "C", "S", "[I", "[B"};
+    private static final String[] COMMENTS = {"", "Returns the thing", "\"Sets the x, y and z coordinates\"", "Checks if it is done",
+            "\"Called when stuff happens, or not\""};
+
+    final File dir;
+
+    private MappingFixture(File dir) {
+        this.dir = dir;
+    }
+
+    static MappingFixture create(int classCount) throws IOException {
+        MappingFixture fixture = new MappingFixture(Files.createTempDirectory("mmv-fixture").toFile());
+        fixture.write(classCount);
+        return fixture;
+    }
+
+    McpMappingLoader load(boolean isNew) throws Exception {
+        return new McpMappingLoader(dir, dir, isNew, NO_PROGRESS);
+    }
+
+    File file(String name) {
+        return new File(dir, name);
+    }
+
+    void delete() throws IOException {
+        Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void write(int classCount) throws IOException {
+        if (!new File(dir, "config").mkdirs())
+            throw new IOException("Unable to create " + new File(dir, "config"));
+
+        Random random = new Random(42);
+        String[] packages = new String[60];
+        for (int i = 0; i < packages.length; i++)
+            packages[i] = "net/minecraft/" + (i % 3 == 0 ? "client/" : "") + "pkg" + i + (i % 5 == 0 ? "/sub" + (i % 7) : "");
+
+        try (PrintWriter srg = writer("joined.srg"); PrintWriter tsrg = writer("config/joined.tsrg");
+             PrintWriter exc = writer("joined.exc"); PrintWriter statics = writer("static_methods.txt");
+             PrintWriter fields = writer("fields.csv"); PrintWriter methods = writer("methods.csv");
+             PrintWriter params = writer("params.csv")) {
+            fields.println("searge,name,side,desc");
+            methods.println("searge,name,side,desc");
+            params.println("param,name,side");
+            srg.println("PK: . net/minecraft/src");
+
+            String[] classNames = new String[classCount];
+            String[] obfNames = new String[classCount];
+            for (int c = 0; c < classCount; c++) {
+                classNames[c] = packages[random.nextInt(packages.length)] + "/Class" + c + (c % 11 == 0 ? "Impl" : "");
+                obfNames[c] = obfName(c);
+                srg.println("CL: " + obfNames[c] + " " + classNames[c] + (c % 4 == 0 ? " #C" : ""));
+            }
+
+            // joined.srg lists all fields after all classes and all methods after all fields
+            List<String> fieldLines = new ArrayList<>();
+            List<String> methodLines = new ArrayList<>();
+            int fieldId = 1000, methodId = 1000;
+
+            for (int c = 0; c < classCount; c++) {
+                tsrg.println(obfNames[c] + " " + classNames[c]);
+
+                int fieldCount = random.nextInt(12);
+                for (int f = 0; f < fieldCount; f++) {
+                    String srgName = "field_" + (fieldId++) + "_" + (char) ('a' + f % 26);
+                    fieldLines.add("FD: " + obfNames[c] + "/" + obfName(f) + " " + classNames[c] + "/" + srgName + (random.nextInt(5) == 0 ? " #C" : ""));
+                    tsrg.println("\t" + obfName(f) + " " + srgName);
+                    if (random.nextInt(3) > 0)
+                        fields.println(srgName + ",field" + fieldId + "Name," + random.nextInt(3) + "," + COMMENTS[random.nextInt(COMMENTS.length)]);
+                }
+
+                int methodCount = random.nextInt(16);
+                for (int m = 0; m < methodCount; m++) {
+                    String srgName = m == 0 && c % 50 == 0 ? "values" : "func_" + (methodId++) + "_" + (char) ('a' + m % 26);
+                    StringBuilder obfDesc = new StringBuilder("(");
+                    StringBuilder srgDesc = new StringBuilder("(");
+                    int paramCount = random.nextInt(5);
+                    List<String> types = new ArrayList<>();
+                    for (int p = 0; p < paramCount; p++) {
+                        if (random.nextBoolean()) {
+                            int o = random.nextInt(classCount);
+                            obfDesc.append('L').append(obfNames[o]).append(';');
+                            srgDesc.append('L').append(classNames[o]).append(';');
+                            types.add("L");
+                        } else {
+                            String t = PRIMITIVES[random.nextInt(PRIMITIVES.length)];
+                            obfDesc.append(t);
+                            srgDesc.append(t);
+                            types.add(t);
+                        }
+                    }
+                    obfDesc.append(")V");
+                    srgDesc.append(")V");
+
+                    boolean isStatic = random.nextInt(6) == 0;
+                    methodLines.add("MD: " + obfNames[c] + "/" + obfName(m + 100) + " " + obfDesc + " " + classNames[c] + "/" + srgName + " " + srgDesc + (random.nextInt(5) == 0 ? " #C" : ""));
+                    tsrg.println("\t" + obfName(m + 100) + " " + obfDesc + " " + srgName);
+                    if (isStatic)
+                        statics.println(srgName);
+
+                    String srgId = srgName.startsWith("func_") ? srgName.substring(5, srgName.lastIndexOf('_')) : srgName;
+                    if (random.nextInt(4) == 0) {
+                        StringBuilder paramNames = new StringBuilder();
+                        for (int p = 0, index = isStatic ? 0 : 1; p < paramCount; p++, index++)
+                            paramNames.append(p > 0 ? "," : "").append("p_").append(srgId).append('_').append(index).append('_');
+                        exc.println(classNames[c] + "." + srgName + srgDesc + "=" + (random.nextInt(8) == 0 ? "java/io/IOException" : "") + "|" + paramNames);
+                    }
+
+                    if (random.nextInt(3) > 0)
+                        methods.println(srgName + ",method" + methodId + "Name," + random.nextInt(3) + "," + COMMENTS[random.nextInt(COMMENTS.length)]);
+
+                    for (int p = 0, index = isStatic ? 0 : 1; p < paramCount; p++, index++) {
+                        if (random.nextInt(2) == 0)
+                            params.println("p_" + srgId + "_" + index + "_,par" + p + "," + random.nextInt(3));
+                        if (types.get(p).equals("J") || types.get(p).equals("D"))
+                            index++;
+                    }
+                }
+            }
+
+            for (String line : fieldLines)
+                srg.println(line);
+            for (String line : methodLines)
+                srg.println(line);
+        }
+
+        Files.copy(file("joined.exc").toPath(), file("config/exceptions.txt").toPath());
+        Files.copy(file("static_methods.txt").toPath(), file("config/static_methods.txt").toPath());
+    }
+
+    private PrintWriter writer(String name) throws IOException {
+        return new PrintWriter(new BufferedWriter(new FileWriter(file(name))));
+    }
+
+    private static String obfName(int i) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('a' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return sb.reverse().toString();
+    }
+}
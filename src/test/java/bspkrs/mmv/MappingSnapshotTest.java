@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class MappingSnapshotTest {
+    private static final int CLASSES = 1000;
+
+    private static MappingFixture fixture;
+    private static SrgFile srg;
+    private static ExcFile exc;
+    private static CsvFile fields, methods;
+    private static ParamCsvFile params;
+    private static final Map<MethodSrgData, CsvData> methodLinks = new HashMap<>();
+    private static final Map<FieldSrgData, CsvData> fieldLinks = new HashMap<>();
+    private static final Map<ExcData, Map<String, ParamCsvData>> paramLinks = new HashMap<>();
+
+    @BeforeClass
+    public static void createFixture() throws IOException {
+        fixture = MappingFixture.create(CLASSES);
+        exc = new ExcFile(fixture.file("joined.exc"));
+        srg = new SrgFile(fixture.file("joined.srg"), exc, new StaticMethodsFile(fixture.file("static_methods.txt")));
+        fields = new CsvFile(fixture.file("fields.csv"));
+        methods = new CsvFile(fixture.file("methods.csv"));
+        params = new ParamCsvFile(fixture.file("params.csv"));
+
+        // linked the way the loader does it
+        for (Entry<String, MethodSrgData> entry : srg.srgMethodName2MethodData.entrySet())
+            if (methods.hasCsvDataForKey(entry.getKey()))
+                methodLinks.put(entry.getValue(), methods.getCsvDataForKey(entry.getKey()));
+        for (Entry<String, FieldSrgData> entry : srg.srgFieldName2FieldData.entrySet())
+            if (fields.hasCsvDataForKey(entry.getKey()))
+                fieldLinks.put(entry.getValue(), fields.getCsvDataForKey(entry.getKey()));
+        for (ExcData excData : exc.srgMethodName2ExcData.values())
+            if (excData.getParameters().length > 0) {
+                Map<String, ParamCsvData> paramMap = new TreeMap<>();
+                for (String srgName : excData.getParameters())
+                    if (params.hasCsvDataForKey(srgName))
+                        paramMap.put(srgName, params.getCsvDataForKey(srgName));
+                paramLinks.put(excData, paramMap);
+            }
+    }
+
+    @AfterClass
+    public static void deleteFixture() throws IOException {
+        fixture.delete();
+    }
+
+    @Test
+    public void readRestoresWhatWasWritten() {
+        File file = write("round-trip.snapshot", "key");
+
+        Map<MethodSrgData, CsvData> readMethodLinks = new HashMap<>();
+        Map<FieldSrgData, CsvData> readFieldLinks = new HashMap<>();
+        Map<ExcData, Map<String, ParamCsvData>> readParamLinks = new HashMap<>();
+        MappingSnapshot snapshot = read(file, "key", readMethodLinks, readFieldLinks, readParamLinks);
+
+        assertNotNull(snapshot);
+        assertFalse(readMethodLinks.isEmpty() || readFieldLinks.isEmpty() || readParamLinks.isEmpty());
+        assertEquals(CLASSES, snapshot.srgFileData.srgClassName2ClassData.size());
+        SrgFileTest.assertSameEntries("srgClassName2ClassData", srg.srgClassName2ClassData, snapshot.srgFileData.srgClassName2ClassData);
+        SrgFileTest.assertSameEntries("srgPkg2ClassDataSet", srg.srgPkg2ClassDataSet, snapshot.srgFileData.srgPkg2ClassDataSet);
+        SrgFileTest.assertSameEntries("srgMethodName2MethodData", srg.srgMethodName2MethodData, snapshot.srgFileData.srgMethodName2MethodData);
+        SrgFileTest.assertSameEntries("srgFieldName2FieldData", srg.srgFieldName2FieldData, snapshot.srgFileData.srgFieldName2FieldData);
+        SrgFileTest.assertSameEntries("class2MethodDataSet", srg.class2MethodDataSet, snapshot.srgFileData.class2MethodDataSet);
+        SrgFileTest.assertSameEntries("class2FieldDataSet", srg.class2FieldDataSet, snapshot.srgFileData.class2FieldDataSet);
+        SrgFileTest.assertSameEntries("srgMethodName2ClassData", srg.srgMethodName2ClassData, snapshot.srgFileData.srgMethodName2ClassData);
+        SrgFileTest.assertSameEntries("srgFieldName2ClassData", srg.srgFieldName2ClassData, snapshot.srgFileData.srgFieldName2ClassData);
+        SrgFileTest.assertSameEntries("srgMethodName2ExcData", exc.srgMethodName2ExcData, snapshot.excFileData.srgMethodName2ExcData);
+        SrgFileTest.assertSameEntries("srgParamName2ExcData", exc.srgParamName2ExcData, snapshot.excFileData.srgParamName2ExcData);
+
+        assertEquals(fields.getHeaderLine(), snapshot.csvFieldData.getHeaderLine());
+        assertEquals(methods.getHeaderLine(), snapshot.csvMethodData.getHeaderLine());
+        assertEquals(params.getHeaderLine(), snapshot.csvParamData.getHeaderLine());
+        SrgFileTest.assertSameEntries("srgMethodData2CsvData", methodLinks, readMethodLinks);
+        SrgFileTest.assertSameEntries("srgFieldData2CsvData", fieldLinks, readFieldLinks);
+        SrgFileTest.assertSameEntries("excData2MapParamCsvData", paramLinks, readParamLinks);
+
+        // the links point into the restored CSV files, so an edit through one is seen by the other
+        for (Entry<MethodSrgData, CsvData> entry : readMethodLinks.entrySet())
+            assertSame(snapshot.csvMethodData.getCsvDataForKey(entry.getKey().getSrgName()), entry.getValue());
+    }
+
+    @Test
+    public void readRejectsAnotherKey() {
+        File file = write("stale.snapshot", "old key");
+
+        Map<MethodSrgData, CsvData> readMethodLinks = new HashMap<>();
+        assertNull(read(file, "new key", readMethodLinks, new HashMap<FieldSrgData, CsvData>(), new HashMap<ExcData, Map<String, ParamCsvData>>()));
+        assertTrue(readMethodLinks.isEmpty());
+    }
+
+    @Test
+    public void readIgnoresATruncatedFile() throws IOException {
+        File file = write("truncated.snapshot", "key");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+
+        Map<MethodSrgData, CsvData> readMethodLinks = new HashMap<>();
+        assertNull(read(file, "key", readMethodLinks, new HashMap<FieldSrgData, CsvData>(), new HashMap<ExcData, Map<String, ParamCsvData>>()));
+        assertTrue(readMethodLinks.isEmpty());
+    }
+
+    @Test
+    public void keyChangesWithTheSourcesAndDigests() throws IOException {
+        File dir = new File(fixture.dir, "key");
+        assertTrue(dir.mkdir());
+        File csv = new File(dir, "fields.csv");
+        File digest = new File(dir, "mcp.zip.sha1");
+        writeText(csv, "searge,name,side,desc\n");
+        writeText(digest, "0123\n");
+
+        String key = MappingSnapshot.buildKey(new File[]{dir}, csv);
+        assertEquals(key, MappingSnapshot.buildKey(new File[]{dir}, csv));
+
+        writeText(digest, "4567\n");
+        String newDigestKey = MappingSnapshot.buildKey(new File[]{dir}, csv);
+        assertFalse(key.equals(newDigestKey));
+
+        // a saved edit changes the size of the CSV
+        writeText(csv, "searge,name,side,desc\nfield_1_a,edited,0,\n");
+        assertFalse(newDigestKey.equals(MappingSnapshot.buildKey(new File[]{dir}, csv)));
+    }
+
+    private static File write(String name, String key) {
+        File file = fixture.file(name);
+        MappingSnapshot.write(file, key, srg, exc, fields, methods, params, methodLinks, fieldLinks, paramLinks);
+        assertTrue(file.isFile());
+        return file;
+    }
+
+    private static MappingSnapshot read(File file, String key, Map<MethodSrgData, CsvData> methodLinks, Map<FieldSrgData, CsvData> fieldLinks,
+                                        Map<ExcData, Map<String, ParamCsvData>> paramLinks) {
+        return MappingSnapshot.read(file, key, fixture.file("fields.csv"), fixture.file("methods.csv"), fixture.file("params.csv"),
+                methodLinks, fieldLinks, paramLinks);
+    }
+
+    private static void writeText(File file, String text) throws IOException {
+        try (FileWriter out = new FileWriter(file)) {
+            out.write(text);
+        }
+    }
+}
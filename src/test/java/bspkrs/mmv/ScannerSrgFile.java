@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Scanner;
+import java.util.TreeSet;
+
+/**
+ * The Scanner based SRG and TSRG parsers as they were before {@link SrgFile} and {@link TSrgFile} were rewritten, kept
+ * unchanged so the tests can check the new parsers against them.
+ */
+final class ScannerSrgFile extends SrgFile {
+    private ScannerSrgFile() {
+    }
+
+    static SrgFile readSrg(File f, ExcFile excFile, StaticMethodsFile staticMethods) throws IOException {
+        ScannerSrgFile srg = new ScannerSrgFile();
+        try (Scanner in = new Scanner(new BufferedReader(new FileReader(f)))) {
+            while (in.hasNextLine()) {
+                if (in.hasNext("CL:")) {
+                    // CL: a net/minecraft/util/EnumChatFormatting
+                    in.next(); // skip CL:
+                    String obf = in.next();
+                    String deobf = in.next();
+                    String srgName = getLastComponent(deobf);
+                    String pkgName = deobf.substring(0, deobf.lastIndexOf('/'));
+
+                    ClassSrgData classData = new ClassSrgData(obf, srgName, pkgName, in.hasNext("#C"));
+
+                    if (!srg.srgPkg2ClassDataSet.containsKey(pkgName))
+                        srg.srgPkg2ClassDataSet.put(pkgName, new TreeSet<ClassSrgData>());
+                    srg.srgPkg2ClassDataSet.get(pkgName).add(classData);
+
+                    srg.srgClassName2ClassData.put(pkgName + "/" + srgName, classData);
+
+                    if (!srg.class2MethodDataSet.containsKey(classData))
+                        srg.class2MethodDataSet.put(classData, new TreeSet<MethodSrgData>());
+
+                    if (!srg.class2FieldDataSet.containsKey(classData))
+                        srg.class2FieldDataSet.put(classData, new TreeSet<FieldSrgData>());
+                } else if (in.hasNext("FD:")) {
+                    // FD: aql/c net/minecraft/block/BlockStoneBrick/field_94408_c #C
+                    in.next(); // skip FD:
+                    String[] obf = in.next().split("/");
+                    String obfOwner = obf[0];
+                    String obfName = obf[1];
+                    String deobf = in.next();
+                    String srgName = getLastComponent(deobf);
+                    String srgPkg = deobf.substring(0, deobf.lastIndexOf('/'));
+                    String srgOwner = getLastComponent(srgPkg);
+                    srgPkg = srgPkg.substring(0, srgPkg.lastIndexOf('/'));
+
+                    FieldSrgData fieldData = new FieldSrgData(obfOwner, obfName, srgOwner, srgPkg, srgName, in.hasNext("#C"));
+
+                    srg.srgFieldName2FieldData.put(srgName, fieldData);
+                    srg.class2FieldDataSet.get(srg.srgClassName2ClassData.get(srgPkg + "/" + srgOwner)).add(fieldData);
+                    srg.srgFieldName2ClassData.put(srgName, srg.srgClassName2ClassData.get(srgPkg + "/" + srgOwner));
+                } else if (in.hasNext("MD:")) {
+                    // MD: aor/a (Lmt;)V net/minecraft/block/BlockHay/func_94332_a (Lnet/minecraft/client/renderer/texture/IconRegister;)V #C
+                    in.next(); // skip MD:
+                    String[] obf = in.next().split("/");
+                    String obfOwner = obf[0];
+                    String obfName = obf[1];
+                    String obfDescriptor = in.next();
+                    String deobf = in.next();
+                    String srgName = getLastComponent(deobf);
+                    String srgPkg = deobf.substring(0, deobf.lastIndexOf('/'));
+                    String srgOwner = getLastComponent(srgPkg);
+                    srgPkg = srgPkg.substring(0, srgPkg.lastIndexOf('/'));
+                    String srgDescriptor = in.next();
+
+                    MethodSrgData methodData = new MethodSrgData(obfOwner, obfName, obfDescriptor, srgOwner, srgPkg, srgName, srgDescriptor, in.hasNext("#C"));
+
+                    srg.srgMethodName2MethodData.put(srgName, methodData);
+                    srg.class2MethodDataSet.get(srg.srgClassName2ClassData.get(srgPkg + "/" + srgOwner)).add(methodData);
+                    srg.srgMethodName2ClassData.put(srgName, srg.srgClassName2ClassData.get(srgPkg + "/" + srgOwner));
+
+                    // Hack in the missing parameter data
+                    addExcData(excFile, new ExcData(srgOwner, srgName, srgDescriptor, new String[0], staticMethods.contains(srgName)));
+                } else
+                    in.nextLine();
+            }
+        }
+        return srg;
+    }
+
+    static SrgFile readTSrg(File f, ExcFile excFile, StaticMethodsFile staticMethods) throws IOException {
+        ScannerSrgFile srg = new ScannerSrgFile();
+        try (Scanner in = new Scanner(new BufferedReader(new FileReader(f)))) {
+            String currentPackage = null;
+            String currentClass = null;
+            String currentObfClass = null;
+            while (in.hasNextLine()) {
+                String[] line = in.nextLine().split(" ");
+
+                if (line[0].indexOf("\t") == 0) // Member
+                {
+                    line[0] = line[0].substring(1); // ignore the leading tab
+
+                    if (line.length == 2) // Field
+                    {
+                        //	a field_192300_a
+                        String obf = line[0];
+                        String srgName = line[1];
+
+                        FieldSrgData fieldData = new FieldSrgData(currentObfClass, obf, currentClass, currentPackage, srgName, false);
+
+                        srg.srgFieldName2FieldData.put(srgName, fieldData);
+                        srg.class2FieldDataSet.get(srg.srgClassName2ClassData.get(currentPackage + "/" + currentClass)).add(fieldData);
+                        srg.srgFieldName2ClassData.put(srgName, srg.srgClassName2ClassData.get(currentPackage + "/" + currentClass));
+                    } else if (line.length == 3) // Method
+                    {
+                        //	b (Lhy;)Lu; func_192295_b
+                        String obf = line[0];
+                        String descriptor = line[1];
+                        String srgName = line[2];
+
+                        MethodSrgData methodData = new MethodSrgData(currentObfClass, obf, descriptor, currentClass, currentPackage, srgName, descriptor/*FIXME*/, false);
+
+                        srg.srgMethodName2MethodData.put(srgName, methodData);
+                        srg.class2MethodDataSet.get(srg.srgClassName2ClassData.get(currentPackage + "/" + currentClass)).add(methodData);
+                        srg.srgMethodName2ClassData.put(srgName, srg.srgClassName2ClassData.get(currentPackage + "/" + currentClass));
+
+                        // Hack in the missing parameter data
+                        addExcData(excFile, new ExcData(currentClass, srgName, descriptor/*FIXME*/, new String[0], staticMethods.contains(srgName)));
+                    }
+                } else // Class
+                {
+                    // u net/minecraft/advancements/DisplayInfo
+                    currentObfClass = line[0];
+                    currentPackage = line[1].substring(0, line[1].lastIndexOf('/'));
+                    currentClass = line[1].substring(line[1].lastIndexOf('/') + 1);
+
+                    ClassSrgData classData = new ClassSrgData(currentObfClass, currentClass, currentPackage, false);
+
+                    if (!srg.srgPkg2ClassDataSet.containsKey(currentPackage))
+                        srg.srgPkg2ClassDataSet.put(currentPackage, new TreeSet<ClassSrgData>());
+                    srg.srgPkg2ClassDataSet.get(currentPackage).add(classData);
+
+                    srg.srgClassName2ClassData.put(currentPackage + "/" + currentClass, classData);
+
+                    if (!srg.class2MethodDataSet.containsKey(classData))
+                        srg.class2MethodDataSet.put(classData, new TreeSet<MethodSrgData>());
+
+                    if (!srg.class2FieldDataSet.containsKey(classData))
+                        srg.class2FieldDataSet.put(classData, new TreeSet<FieldSrgData>());
+                }
+            }
+        }
+        return srg;
+    }
+
+    private static void addExcData(ExcFile excFile, ExcData toAdd) {
+        ExcData existing = excFile.srgMethodName2ExcData.get(toAdd.getSrgMethodName());
+
+        if ((existing == null) || (existing.getParameters().length < toAdd.getParameters().length)) {
+            excFile.srgMethodName2ExcData.put(toAdd.getSrgMethodName(), toAdd);
+            for (String parameter : toAdd.getParameters())
+                excFile.srgParamName2ExcData.put(parameter, toAdd);
+        }
+    }
+
+    public static String getLastComponent(String s) {
+        String[] parts = s.split("/");
+        return parts[parts.length - 1];
+    }
+}
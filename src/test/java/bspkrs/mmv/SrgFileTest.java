@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2015 bspkrs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package bspkrs.mmv;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class SrgFileTest {
+    private static final int CLASSES = 3000;
+
+    private static MappingFixture fixture;
+
+    @BeforeClass
+    public static void createFixture() throws IOException {
+        fixture = MappingFixture.create(CLASSES);
+    }
+
+    @AfterClass
+    public static void deleteFixture() throws IOException {
+        fixture.delete();
+    }
+
+    @Test
+    public void srgMatchesScannerParser() throws IOException {
+        File srg = fixture.file("joined.srg");
+        ExcFile expectedExc = new ExcFile(fixture.file("joined.exc"));
+        ExcFile actualExc = new ExcFile(fixture.file("joined.exc"));
+        StaticMethodsFile staticMethods = new StaticMethodsFile(fixture.file("static_methods.txt"));
+
+        SrgFile expected = ScannerSrgFile.readSrg(srg, expectedExc, staticMethods);
+        SrgFile actual = new SrgFile(srg, actualExc, staticMethods);
+
+        assertEquals(CLASSES, actual.srgClassName2ClassData.size());
+        assertSameMaps(expected, actual);
+        assertSameEntries("srgMethodName2ExcData", expectedExc.srgMethodName2ExcData, actualExc.srgMethodName2ExcData);
+        assertSameEntries("srgParamName2ExcData", expectedExc.srgParamName2ExcData, actualExc.srgParamName2ExcData);
+    }
+
+    @Test
+    public void tsrgMatchesScannerParser() throws IOException {
+        File tsrg = fixture.file("config/joined.tsrg");
+        ExcFile expectedExc = new ExcFile(fixture.file("config/exceptions.txt"));
+        ExcFile actualExc = new ExcFile(fixture.file("config/exceptions.txt"));
+        StaticMethodsFile staticMethods = new StaticMethodsFile(fixture.file("config/static_methods.txt"));
+
+        SrgFile expected = ScannerSrgFile.readTSrg(tsrg, expectedExc, staticMethods);
+        SrgFile actual = new TSrgFile(tsrg, actualExc, staticMethods);
+
+        assertEquals(CLASSES, actual.srgClassName2ClassData.size());
+        assertSameMaps(expected, actual);
+        assertSameEntries("srgMethodName2ExcData", expectedExc.srgMethodName2ExcData, actualExc.srgMethodName2ExcData);
+        assertSameEntries("srgParamName2ExcData", expectedExc.srgParamName2ExcData, actualExc.srgParamName2ExcData);
+    }
+
+    private static void assertSameMaps(SrgFile expected, SrgFile actual) {
+        assertSameEntries("srgClassName2ClassData", expected.srgClassName2ClassData, actual.srgClassName2ClassData);
+        assertSameEntries("srgPkg2ClassDataSet", expected.srgPkg2ClassDataSet, actual.srgPkg2ClassDataSet);
+        assertSameEntries("srgFieldName2FieldData", expected.srgFieldName2FieldData, actual.srgFieldName2FieldData);
+        assertSameEntries("srgMethodName2MethodData", expected.srgMethodName2MethodData, actual.srgMethodName2MethodData);
+        assertSameEntries("class2MethodDataSet", expected.class2MethodDataSet, actual.class2MethodDataSet);
+        assertSameEntries("class2FieldDataSet", expected.class2FieldDataSet, actual.class2FieldDataSet);
+        assertSameEntries("srgMethodName2ClassData", expected.srgMethodName2ClassData, actual.srgMethodName2ClassData);
+        assertSameEntries("srgFieldName2ClassData", expected.srgFieldName2ClassData, actual.srgFieldName2ClassData);
+    }
+
+    /**
+     * Compares two maps entry by entry, by the full contents of their keys and values rather than by equals(), which only
+     * looks at the SRG names.
+     */
+    static void assertSameEntries(String name, Map<?, ?> expected, Map<?, ?> actual) {
+        Map<String, String> expectedEntries = describe(expected);
+        Map<String, String> actualEntries = describe(actual);
+        assertEquals(name + " size", expectedEntries.size(), actualEntries.size());
+        for (Entry<String, String> entry : expectedEntries.entrySet())
+            assertEquals(name + " " + entry.getKey(), entry.getValue(), actualEntries.get(entry.getKey()));
+    }
+
+    private static Map<String, String> describe(Map<?, ?> map) {
+        Map<String, String> entries = new TreeMap<>();
+        for (Entry<?, ?> entry : map.entrySet())
+            entries.put(describe(entry.getKey()), describe(entry.getValue()));
+        return entries;
+    }
+
+    private static String describe(Object o) {
+        if (o instanceof ClassSrgData) {
+            ClassSrgData c = (ClassSrgData) o;
+            return c.getObfName() + " " + c.getSrgPkgName() + "/" + c.getSrgName() + (c.isClientOnly() ? " #C" : "");
+        } else if (o instanceof MemberSrgData) {
+            MemberSrgData m = (MemberSrgData) o;
+            String desc = m instanceof MethodSrgData ? " " + ((MethodSrgData) m).getObfDescriptor() + " " + ((MethodSrgData) m).getSrgDescriptor() : "";
+            return m.getObfOwner() + "/" + m.getObfName() + " " + m.getSrgPkg() + "/" + m.getSrgOwner() + "/" + m.getSrgName() + desc
+                    + (m.isClientOnly() ? " #C" : "");
+        } else if (o instanceof CsvData) {
+            return ((CsvData) o).toCsv();
+        } else if (o instanceof ParamCsvData) {
+            return ((ParamCsvData) o).toCsv();
+        } else if (o instanceof Map) {
+            return describe((Map<?, ?>) o).toString();
+        } else if (o instanceof Collection) {
+            // in iteration order, which the GUI shows them in
+            StringBuilder sb = new StringBuilder("[");
+            for (Object element : (Collection<?>) o)
+                sb.append(sb.length() > 1 ? ", " : "").append(describe(element));
+            return sb.append(']').toString();
+        } else
+            return String.valueOf(o);
+    }
+}